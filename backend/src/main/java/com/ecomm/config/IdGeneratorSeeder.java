@@ -0,0 +1,41 @@
+package com.ecomm.config;
+
+import com.ecomm.model.Order;
+import com.ecomm.model.OrderItem;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Orders and order items moved from IDENTITY columns to pooled table generators. The pooled optimizer hands
+// out the block ending at the stored value, so before anything is inserted each generator row is raised
+// to clear the highest existing id by a full block. Runs after Hibernate has created the generator table.
+@Component
+@DependsOn("entityManagerFactory")
+public class IdGeneratorSeeder {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdGeneratorSeeder.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void seed() {
+        seed("orders", "orders", Order.ID_ALLOCATION_SIZE);
+        seed("order_item", "order_item", OrderItem.ID_ALLOCATION_SIZE);
+    }
+
+    private void seed(String generator, String table, int allocationSize) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        long floor = maxId + allocationSize + 1;
+        int updated = jdbcTemplate.update(
+                "UPDATE id_generators SET next_val = GREATEST(next_val, ?) WHERE sequence_name = ?", floor, generator);
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO id_generators (sequence_name, next_val) VALUES (?, ?)", generator, floor);
+        }
+        logger.info("Id generator {} starts above {}", generator, maxId);
+    }
+}
@@ -78,12 +78,16 @@ public class SecurityConfig {
                             // Product endpoints
                             .requestMatchers(HttpMethod.GET, "/api/products/**").permitAll()
                             .requestMatchers(HttpMethod.GET, "/api/product/**").permitAll()
+                            .requestMatchers(HttpMethod.GET, "/api/images/**").permitAll()
                             .requestMatchers(HttpMethod.GET, "/api/products/search").permitAll()
                             .requestMatchers(HttpMethod.PUT, "/api/products/*/decrement-stock").authenticated()
                             .requestMatchers(HttpMethod.PUT, "/api/products/**").hasRole("ADMIN")
                             .requestMatchers(HttpMethod.POST, "/api/products").hasRole("ADMIN")
                             .requestMatchers(HttpMethod.DELETE, "/api/products/**").hasRole("ADMIN")
 
+                            // Admin metrics
+                            .requestMatchers("/api/admin/**").hasRole("ADMIN")
+
                             // Razorpay endpoints
                             .requestMatchers(HttpMethod.POST, "/api/payment/create-order").authenticated()
                             .requestMatchers(HttpMethod.POST, "/api/payment/verify").authenticated()
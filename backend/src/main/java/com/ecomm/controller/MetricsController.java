@@ -0,0 +1,88 @@
+package com.ecomm.controller;
+
+import com.ecomm.service.EmailOutbox;
+import com.ecomm.service.OrderGroupCommitter;
+import com.ecomm.service.OrderHistoryCache;
+import com.ecomm.service.ProductCache;
+import com.ecomm.service.ProductImageService;
+import com.ecomm.service.ProductService;
+import com.ecomm.service.StockReservations;
+import com.ecomm.service.StockStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Operational counters used to size in-process caches and queues
+@RestController
+@RequestMapping("/api/admin/metrics")
+@PreAuthorize("hasRole('ADMIN')")
+public class MetricsController {
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductImageService productImageService;
+
+    @Autowired
+    private StockReservations stockReservations;
+
+    @Autowired
+    private StockStream stockStream;
+
+    @Autowired
+    private OrderGroupCommitter orderGroupCommitter;
+
+    @Autowired
+    private EmailOutbox emailOutbox;
+
+    @Autowired
+    private OrderHistoryCache orderHistoryCache;
+
+    @GetMapping("/product-cache")
+    public ResponseEntity<Map<String, Object>> getProductCacheStats() {
+        return ResponseEntity.ok(productCache.stats());
+    }
+
+    @GetMapping("/read-coalescing")
+    public ResponseEntity<Map<String, Object>> getReadCoalescingStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("productSummaries", productService.getSummaryLoadStats());
+        stats.put("legacyImages", productImageService.getLegacyImageLoadStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    @GetMapping("/stock-reservations")
+    public ResponseEntity<Map<String, Object>> getStockReservationStats() {
+        return ResponseEntity.ok(stockReservations.stats());
+    }
+
+    @GetMapping("/stock-stream")
+    public ResponseEntity<Map<String, Object>> getStockStreamStats() {
+        return ResponseEntity.ok(stockStream.stats());
+    }
+
+    @GetMapping("/email-outbox")
+    public ResponseEntity<Map<String, Object>> getEmailOutboxStats() {
+        return ResponseEntity.ok(emailOutbox.stats());
+    }
+
+    @GetMapping("/order-history-cache")
+    public ResponseEntity<Map<String, Object>> getOrderHistoryCacheStats() {
+        return ResponseEntity.ok(orderHistoryCache.stats());
+    }
+
+    @GetMapping("/order-group-commit")
+    public ResponseEntity<Map<String, Object>> getOrderGroupCommitStats() {
+        return ResponseEntity.ok(orderGroupCommitter.stats());
+    }
+}
@@ -1,13 +1,17 @@
 package com.ecomm.controller;
 
+import com.ecomm.dto.CursorPage;
 import com.ecomm.dto.OrderRequest;
 import com.ecomm.dto.OrderResponse;
-import com.ecomm.model.Order;
+import com.ecomm.service.IdempotencyKeyReusedException;
+import com.ecomm.service.IdempotentOrderService;
+import com.ecomm.service.InsufficientStockException;
 import com.ecomm.service.OrderService;
 import com.razorpay.RazorpayException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
@@ -22,25 +26,49 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private IdempotentOrderService idempotentOrderService;
+
 
     @PostMapping("/create")
     public ResponseEntity<?> createOrder(
-            @RequestBody OrderRequest orderRequest
+            @RequestBody OrderRequest orderRequest,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
 //            @RequestHeader("Authorization") String authHeader         commenting this for OAuth2 cookie logins
+            Authentication authentication
     ) {
         try {
-            Order order = orderService.createAndPlaceOrder(orderRequest.getUserId(), orderRequest);
+            // Stock held at checkout is only sold to the user who started it, the holder PaymentController used
+            OrderResponse order = idempotentOrderService.placeOrder(orderRequest.getUserId(), authentication.getName(),
+                    orderRequest, idempotencyKey);
             return ResponseEntity.ok(order);
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getLines());
+        } catch (IdempotencyKeyReusedException e) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body("Error creating order: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Error creating order: " + e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Error creating order: " + e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Error creating order: " + e.getMessage());
         }
     }
 
+    // Without paging parameters the full history is returned, as before; with cursor or limit a CursorPage
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<OrderResponse>> getUserOrders(@PathVariable Long userId) {
+    public ResponseEntity<?> getUserOrders(@PathVariable Long userId,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer limit) {
         try {
-            List<OrderResponse> response = orderService.getUserOrders(userId);
-            return ResponseEntity.ok(response);
+            if (cursor == null && limit == null) {
+                List<OrderResponse> response = orderService.getUserOrders(userId);
+                return ResponseEntity.ok(response);
+            }
+            CursorPage<OrderResponse> page = orderService.getUserOrderPage(userId, cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Collections.emptyList());
@@ -1,18 +1,22 @@
 package com.ecomm.controller;
 
+import com.ecomm.dto.OrderItemDTO;
 import com.ecomm.dto.PaymentRequest;
+import com.ecomm.service.InsufficientStockException;
 import com.ecomm.service.OrderService;
 import com.ecomm.service.PaymentService;
 import com.razorpay.RazorpayException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/payment")
@@ -25,8 +29,20 @@ public class PaymentController {
     private OrderService orderService;
 
     @PostMapping("/create-order")
-    public String createOrder(@RequestBody PaymentRequest paymentRequest) throws RazorpayException {
-        return paymentService.createOrder(paymentRequest.getAmount(), "INR", "order_receipt_123");
+    public ResponseEntity<?> createOrder(@RequestBody PaymentRequest paymentRequest, Authentication authentication)
+            throws RazorpayException {
+        Map<Long, Integer> quantities = paymentRequest.getItems() == null ? Map.of() : paymentRequest.getItems().stream()
+                .collect(Collectors.toMap(OrderItemDTO::getProductId, OrderItemDTO::getQuantity, Integer::sum));
+        try {
+            return ResponseEntity.ok(paymentService.createOrder(paymentRequest.getAmount(), "INR", "order_receipt_123",
+                    authentication.getName(), quantities));
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getLines());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
     }
 
     @PostMapping("/verify")
@@ -1,20 +1,45 @@
 package com.ecomm.controller;
 
+import com.ecomm.dto.CursorPage;
+import com.ecomm.dto.DecrementRequest;
+import com.ecomm.dto.ProductDTO;
+import com.ecomm.dto.SearchPage;
 import com.ecomm.model.Product;
+import com.ecomm.service.InsufficientStockException;
+import com.ecomm.service.ProductFilter;
+import com.ecomm.service.ProductImageService;
 import com.ecomm.service.ProductService;
+import com.ecomm.service.StockDecrement;
+import com.ecomm.service.StockStream;
+import com.ecomm.storage.ImageVariant;
+import com.ecomm.storage.StoredImage;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api")
@@ -22,14 +47,40 @@ public class ProductController {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
 
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductImageService productImageService;
+
+    @Autowired
+    private StockStream stockStream;
+
+    // Freshness for unversioned image URLs; versioned ones are immutable
+    @Value("${images.cache.max-age:PT1H}")
+    private Duration imageMaxAge;
+
     @GetMapping("/products")
-    public ResponseEntity<List<Product>> getProducts() {
+    public ResponseEntity<?> getProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort) {
         try {
-            List<Product> products = productService.getAllProducts();
-            return new ResponseEntity<>(products, HttpStatus.OK);
+            // Without paging parameters the full catalog is returned, as before
+            if (cursor == null && limit == null && sort == null) {
+                List<ProductDTO> products = productService.getAllProducts();
+                return new ResponseEntity<>(products, HttpStatus.OK);
+            }
+            CursorPage<ProductDTO> page = productService.getProductPage(cursor, limit, sort);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid product page request: {}", e.getMessage());
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             logger.error("Error fetching products", e);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -37,11 +88,11 @@ public class ProductController {
     }
 
     @GetMapping("/product/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable("id") Long id) {
+    public ResponseEntity<ProductDTO> getProductById(@PathVariable("id") Long id) {
         try {
-            Product product = productService.getProductById(id);
-            if (product != null) {
-                return new ResponseEntity<>(product, HttpStatus.OK);
+            Optional<ProductDTO> product = productService.getProductSummary(id);
+            if (product.isPresent()) {
+                return new ResponseEntity<>(product.get(), HttpStatus.OK);
             } else {
                 logger.warn("Product with ID {} not found", id);
                 return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -52,23 +103,157 @@ public class ProductController {
         }
     }
 
-    @GetMapping(value = "/product/{productId}/image", produces = MediaType.IMAGE_JPEG_VALUE)
-    public ResponseEntity<byte[]> getImageByProductId(@PathVariable Long productId) {
+    @GetMapping("/product/{productId}/image")
+    public void getImageByProductId(@PathVariable Long productId,
+                                    @RequestParam(value = "v", required = false) String version,
+                                    @RequestParam(value = "size", required = false) String size,
+                                    HttpServletRequest request,
+                                    HttpServletResponse response) throws IOException {
         try {
-            byte[] imageData = productService.getProductImage(productId);
+            ImageVariant variant = ImageVariant.fromParam(size);
+            // One blob-free lookup gives the storage key, content type and modification time
+            ProductDTO product = productService.getProductSummary(productId).orElse(null);
+            if (product == null) {
+                logger.warn("Product with ID {} not found for image", productId);
+                response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+                response.sendError(HttpStatus.NOT_FOUND.value());
+                return;
+            }
+            String imageKey = product.imageKey();
+
+            // Answer conditional requests from metadata alone, before the image itself is opened
+            if (imageKey != null && imageKey.equals(version)) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(Duration.ofDays(365))
+                        .cachePublic().immutable().getHeaderValue());
+            } else {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(imageMaxAge)
+                        .cachePublic().getHeaderValue());
+            }
+            String etag = imageKey != null ? "\"" + variant.keyFor(imageKey) + "\"" : null;
+            long lastModified = product.imageUpdatedAt() != null ? product.imageUpdatedAt().toEpochMilli() : -1;
+            if ((etag != null || lastModified > 0)
+                    && new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+                return;
+            }
+
+            if (variant != ImageVariant.ORIGINAL) {
+                Optional<StoredImage> derived = productImageService.findVariant(imageKey, variant);
+                if (derived.isPresent()) {
+                    response.setContentType(productImageService.getVariantContentType());
+                    sendFile(derived.get(), request, response);
+                    return;
+                }
+                // Not generated yet: queue it and serve the original, without letting caches keep it
+                // under the variant's URL or validator
+                productImageService.generateVariantsAsync(imageKey);
+                response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(Duration.ofMinutes(1))
+                        .getHeaderValue());
+                if (imageKey != null) {
+                    response.setHeader(HttpHeaders.ETAG, "\"" + imageKey + "\"");
+                }
+            }
+
+            Optional<StoredImage> storedImage = productImageService.findStoredImage(imageKey);
+            if (storedImage.isPresent()) {
+                logger.debug("Serving stored image {} for product ID {}", imageKey, productId);
+                response.setContentType(product.imageType());
+                sendFile(storedImage.get(), request, response);
+                return;
+            }
+
+            byte[] imageData = productImageService.getLegacyImageData(productId);
             if (imageData != null) {
-                Product product = productService.getProductById(productId);
-                logger.info("Serving image of type {} for product ID {}", product.getImageType(), productId);
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(product.getImageType()))
-                        .body(imageData);
+                logger.info("Serving legacy database image for product ID {}", productId);
+                response.setContentType(product.imageType());
+                response.setContentLength(imageData.length);
+                response.getOutputStream().write(imageData);
             } else {
                 logger.warn("Image for product ID {} not found", productId);
-                return ResponseEntity.notFound().build();
+                response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+                response.sendError(HttpStatus.NOT_FOUND.value());
             }
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid image request for product ID {}: {}", productId, e.getMessage());
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+            response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
         } catch (Exception e) {
             logger.error("Error fetching image for product ID {}", productId, e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            if (!response.isCommitted()) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+                response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            }
+        }
+    }
+
+    // An image by content key, for order lines whose snapshot the product has since replaced. The key is the
+    // content hash, so a response never changes and can be cached for good.
+    @GetMapping("/images/{imageKey}")
+    public void getImageByKey(@PathVariable String imageKey,
+                              @RequestParam(value = "size", required = false) String size,
+                              HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        try {
+            ImageVariant variant = ImageVariant.fromParam(size);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(Duration.ofDays(365))
+                    .cachePublic().immutable().getHeaderValue());
+            if (new ServletWebRequest(request, response).checkNotModified("\"" + variant.keyFor(imageKey) + "\"")) {
+                return;
+            }
+
+            if (variant != ImageVariant.ORIGINAL) {
+                Optional<StoredImage> derived = productImageService.findVariant(imageKey, variant);
+                if (derived.isPresent()) {
+                    response.setContentType(productImageService.getVariantContentType());
+                    sendFile(derived.get(), request, response);
+                    return;
+                }
+            }
+
+            // Looked up before queueing variants, so unknown keys never reach the derivative workers
+            Optional<StoredImage> storedImage = productImageService.findStoredImage(imageKey);
+            if (storedImage.isEmpty()) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+                response.sendError(HttpStatus.NOT_FOUND.value());
+                return;
+            }
+            if (variant != ImageVariant.ORIGINAL) {
+                // Not generated yet: queue it and serve the original, without letting caches keep it
+                // under the variant's URL or validator
+                productImageService.generateVariantsAsync(imageKey);
+                response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(Duration.ofMinutes(1))
+                        .getHeaderValue());
+                response.setHeader(HttpHeaders.ETAG, "\"" + imageKey + "\"");
+            }
+            response.setContentType(productImageService.contentTypeOf(storedImage.get()));
+            sendFile(storedImage.get(), request, response);
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+            response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error fetching image {}", imageKey, e);
+            if (!response.isCommitted()) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+                response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            }
+        }
+    }
+
+    // Hands the file to Tomcat's sendfile when the connector supports it, so the bytes go from the
+    // page cache to the socket without entering the heap. Otherwise falls back to FileChannel.transferTo.
+    private void sendFile(StoredImage image, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentLengthLong(image.size());
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, image.path().toRealPath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, 0L);
+            request.setAttribute(SENDFILE_END_ATTR, image.size());
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(image.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < image.size()) {
+                position += channel.transferTo(position, image.size() - position, out);
+            }
         }
     }
 
@@ -79,6 +264,9 @@ public class ProductController {
             logger.info("Adding new product: {}", product.getName());
             Product savedProduct = productService.addOrUpdateProduct(product, imageFile);
             return new ResponseEntity<>(savedProduct, HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid new product {}: {}", product.getName(), e.getMessage());
+            return new ResponseEntity<>("Failed to add product: " + e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (IOException e) {
             logger.error("Error adding product: {}", product.getName(), e);
             return new ResponseEntity<>("Failed to add product: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -90,12 +278,15 @@ public class ProductController {
     public ResponseEntity<?> updateProduct(
             @PathVariable Long id,
             @RequestPart("product") Product product,
-            @RequestPart("image") MultipartFile imageFile) {
+            @RequestPart(value = "image", required = false) MultipartFile imageFile) {
         try {
             logger.info("Updating product with ID: {}", id);
             product.setId(id);
             Product updatedProduct = productService.addOrUpdateProduct(product, imageFile);
             return new ResponseEntity<>(updatedProduct, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid update for product with ID {}: {}", id, e.getMessage());
+            return new ResponseEntity<>("Failed to update product: " + e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (IOException e) {
             logger.error("Error updating product with ID {}: {}", id, e.getMessage());
             return new ResponseEntity<>("Failed to update product: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -119,22 +310,74 @@ public class ProductController {
     }
 
     @GetMapping("/products/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String keyword) {
+    public ResponseEntity<?> searchProducts(@RequestParam String keyword,
+                                            @RequestParam(required = false) String sort,
+                                            @RequestParam(defaultValue = "false") boolean fuzzy,
+                                            @RequestParam(required = false) Integer offset,
+                                            @RequestParam(required = false) Integer limit) {
         try {
-            List<Product> products = productService.searchProducts(keyword);
-            return new ResponseEntity<>(products, HttpStatus.OK);
+            SearchPage<ProductDTO> results = productService.searchProducts(keyword, sort, fuzzy, offset, limit);
+            return new ResponseEntity<>(results, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             logger.error("Error searching for products with keyword: {}", keyword, e);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    @GetMapping("/products/browse")
+    public ResponseEntity<?> browseProducts(@RequestParam(required = false) Set<String> category,
+                                            @RequestParam(required = false) Set<String> brand,
+                                            @RequestParam(required = false) Double minPrice,
+                                            @RequestParam(required = false) Double maxPrice,
+                                            @RequestParam(defaultValue = "false") boolean inStock,
+                                            @RequestParam(required = false) String sort,
+                                            @RequestParam(required = false) Integer offset,
+                                            @RequestParam(required = false) Integer limit) {
+        try {
+            ProductFilter filter = new ProductFilter(category, brand, minPrice, maxPrice, inStock);
+            return new ResponseEntity<>(productService.browseProducts(filter, sort, offset, limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (Exception e) {
+            logger.error("Error browsing products", e);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @GetMapping("/products/suggest")
+    public ResponseEntity<?> suggestProducts(@RequestParam String prefix,
+                                             @RequestParam(defaultValue = "8") int limit) {
+        try {
+            return new ResponseEntity<>(productService.suggestProducts(prefix, limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            logger.error("Error suggesting products for prefix: {}", prefix, e);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Server-sent "stock" events for the given products: current levels first, then changes
+    @GetMapping(path = "/products/stock-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamStock(@RequestParam List<Long> ids) {
+        try {
+            return ResponseEntity.ok(stockStream.subscribe(ids));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
     @DeleteMapping("/product/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<String> deleteProduct(@PathVariable Long id) {
         try {
-            Product product = productService.getProductById(id);
-            if (product != null) {
+            if (productService.getProductSummary(id).isPresent()) {
                 productService.deleteProduct(id);
                 return new ResponseEntity<>("Product deleted", HttpStatus.OK);
             } else {
@@ -164,4 +407,24 @@ public class ProductController {
             return new ResponseEntity<>("Unexpected error: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
-}
\ No newline at end of file
+
+    // Every line of a cart in one transaction; 409 lists each line's outcome when any of them is short
+    @PutMapping("/products/decrement-stock")
+    @PreAuthorize("hasRole('ADMIN')") // Internal usage, restricted to admins
+    public ResponseEntity<?> decrementStock(@RequestBody List<DecrementRequest> lines) {
+        try {
+            List<StockDecrement> results = productService.decrementStock(lines);
+            logger.info("Decremented stock for {} products", results.size());
+            return ResponseEntity.ok(results);
+        } catch (InsufficientStockException e) {
+            logger.warn("Batch stock decrement rejected: {}", e.getMessage());
+            return new ResponseEntity<>(e.getLines(), HttpStatus.CONFLICT);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error decrementing stock: {}", e.getMessage());
+            return new ResponseEntity<>("Failed to decrement stock: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            logger.error("Unexpected error decrementing stock: {}", e.getMessage());
+            return new ResponseEntity<>("Unexpected error: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.ecomm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BrowsePage<T> {
+    private List<T> items;
+    private int total;
+    private int offset;
+    private int limit;
+    // Facet name -> value -> count; each facet is counted with every filter applied except its own
+    private Map<String, Map<String, Integer>> facets;
+}
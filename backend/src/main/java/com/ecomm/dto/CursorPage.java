@@ -0,0 +1,19 @@
+package com.ecomm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    // Opaque token for the next page, null when this is the last page
+    private String nextCursor;
+    private int size;
+}
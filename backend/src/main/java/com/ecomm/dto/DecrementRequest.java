@@ -1,8 +1,17 @@
 package com.ecomm.dto;
 
 public class DecrementRequest {
+    private Long productId;
     private int quantity;
 
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
     public int getQuantity() {
         return quantity;
     }
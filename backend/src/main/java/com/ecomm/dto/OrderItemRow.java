@@ -0,0 +1,17 @@
+package com.ecomm.dto;
+
+// One order line with the product snapshot taken at checkout; reads nothing from the product table
+public record OrderItemRow(Long orderId, Long productId, int quantity, double price,
+                           String productName, String imageKey) {
+
+    public OrderItemDTO toDto() {
+        OrderItemDTO dto = new OrderItemDTO();
+        dto.setProductId(productId);
+        dto.setQuantity(quantity);
+        dto.setProductName(productName);
+        dto.setPrice(price);
+        // The image at checkout, which the product may have replaced since
+        dto.setImageUrl(imageKey == null ? ProductDTO.imageUrlFor(productId) : ProductDTO.storedImageUrl(imageKey));
+        return dto;
+    }
+}
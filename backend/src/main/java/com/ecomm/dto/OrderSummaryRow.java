@@ -0,0 +1,8 @@
+package com.ecomm.dto;
+
+import java.time.Instant;
+
+// Order header columns for order history, selected without the user or items
+public record OrderSummaryRow(Long id, String razorpayOrderId, double totalAmount, String paymentStatus,
+                              Instant orderDate) {
+}
@@ -3,8 +3,12 @@ package com.ecomm.dto;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.List;
+
 @Getter
 @Setter
 public class PaymentRequest {
     private double amount;
+    // Cart lines to hold stock for while the customer pays; optional
+    private List<OrderItemDTO> items;
 }
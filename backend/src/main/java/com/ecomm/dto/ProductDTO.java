@@ -0,0 +1,45 @@
+package com.ecomm.dto;
+
+import java.time.Instant;
+import java.util.Date;
+
+// Catalog read model: every product field except the image bytes, which are served separately
+public record ProductDTO(
+        Long id,
+        String name,
+        String description,
+        String brand,
+        double price,
+        String category,
+        Date releaseDate,
+        boolean productAvailable,
+        int stockQuantity,
+        String imageName,
+        String imageType,
+        // Content hash of the stored image, null when the product has none or it is not migrated yet
+        String imageKey,
+        Instant imageUpdatedAt,
+        String imageUrl
+) {
+    // Used by the JPQL constructor expressions in ProductRepo
+    public ProductDTO(Long id, String name, String description, String brand, double price, String category,
+                      Date releaseDate, boolean productAvailable, int stockQuantity,
+                      String imageName, String imageType, String imageKey, Instant imageUpdatedAt) {
+        this(id, name, description, brand, price, category, releaseDate, productAvailable, stockQuantity,
+                imageName, imageType, imageKey, imageUpdatedAt, imageUrlFor(id, imageKey));
+    }
+
+    public static String imageUrlFor(Long productId) {
+        return "/api/product/" + productId + "/image";
+    }
+
+    // Versioned by content hash: the URL changes whenever the image does, so clients may cache it forever
+    public static String imageUrlFor(Long productId, String imageKey) {
+        return imageKey == null ? imageUrlFor(productId) : imageUrlFor(productId) + "?v=" + imageKey;
+    }
+
+    // A stored image by content key, whatever the product shows now; order lines use it for their snapshot
+    public static String storedImageUrl(String imageKey) {
+        return "/api/images/" + imageKey;
+    }
+}
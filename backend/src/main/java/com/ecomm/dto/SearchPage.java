@@ -0,0 +1,20 @@
+package com.ecomm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchPage<T> {
+    private List<T> items;
+    // Number of matches; paging only reaches the first catalog.search.max-results of them
+    private int total;
+    private int offset;
+    private int limit;
+}
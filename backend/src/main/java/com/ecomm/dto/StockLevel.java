@@ -0,0 +1,4 @@
+package com.ecomm.dto;
+
+public record StockLevel(Long productId, int stockQuantity) {
+}
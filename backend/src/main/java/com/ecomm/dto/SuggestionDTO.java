@@ -0,0 +1,5 @@
+package com.ecomm.dto;
+
+// Typeahead completion; productId is only set for a name that belongs to exactly one product
+public record SuggestionDTO(String text, String type, Long productId) {
+}
@@ -0,0 +1,39 @@
+package com.ecomm.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+// Stock taken by the in-memory ledger but not yet applied to the product row. Rows are written in the same
+// transaction as the sale and deleted once the write-behind flush has applied them.
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "inventory_journal")
+public class InventoryJournalEntry {
+    // Inserted by InventoryJournal with plain JDBC, so the id comes from the column
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public InventoryJournalEntry(Long productId, int quantity, Instant createdAt) {
+        this.productId = productId;
+        this.quantity = quantity;
+        this.createdAt = createdAt;
+    }
+}
@@ -16,15 +16,33 @@ import java.util.List;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "orders")
+@Table(name = "orders", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_orders_idempotency_key", columnNames = "idempotency_key")
+}, indexes = {
+        @Index(name = "idx_orders_user_date", columnList = "user_id, order_date, id")
+})
 public class Order {
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Pooled table ids instead of IDENTITY so Hibernate can batch the inserts; see IdGeneratorSeeder
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_ids")
+    @TableGenerator(name = "order_ids", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "orders",
+            allocationSize = Order.ID_ALLOCATION_SIZE)
     private long id;
 
     private double totalAmount;
     private String paymentStatus;
     private String razorpayOrderId;
+    private String razorpayPaymentId;
+
+    // Idempotency-Key header, or the Razorpay order id when none was sent; a retried create finds this order
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+    // OrderRequestHash of the request that placed it, so a reused key with another cart is refused
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
     @Column(name = "order_date")
 
     private Instant orderDate;
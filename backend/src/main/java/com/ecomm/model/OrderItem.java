@@ -11,16 +11,28 @@ import lombok.Setter;
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
+@Table(indexes = @Index(name = "idx_order_item_image_key", columnList = "image_key"))
 public class OrderItem {
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_item_ids")
+    @TableGenerator(name = "order_item_ids", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "order_item",
+            allocationSize = OrderItem.ID_ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id")
     private Product product;
-//    private String productName;
+
+    // Snapshot taken at checkout, so history shows what was bought and at what price without reading the
+    // product row. price is the unit price paid.
+    @Column(updatable = false)
+    private String productName;
     private double price;
+    @Column(length = 64, updatable = false)
+    private String imageKey;
     private int quantity;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -1,9 +1,11 @@
 package com.ecomm.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.Date;
 
 @Entity
@@ -12,6 +14,10 @@ import java.util.Date;
 @NoArgsConstructor
 @AllArgsConstructor
 @ToString
+@Table(indexes = {
+        @Index(name = "idx_product_price_id", columnList = "price, id"),
+        @Index(name = "idx_product_release_date_id", columnList = "release_date, id")
+})
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -22,12 +28,24 @@ public class Product {
     private String brand;
     private double price;
     private String category;
+    @Column(name = "release_date")
     private Date releaseDate;
     private boolean productAvailable;
     private int stockQuantity;
     private String imageName;
     private String imageType;
+    // SHA-256 of the image in the ImageStore
+    @Column(length = 64)
+    private String imageKey;
+    private Instant imageUpdatedAt;
+    // Legacy storage, only populated for rows not yet moved to the ImageStore.
+    // Read-only so entity saves never write or clear it; never part of catalog JSON.
+    // Lazy only because the build runs Hibernate's bytecode enhancer (see pom.xml)
     @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(insertable = false, updatable = false)
+    @JsonIgnore
+    @ToString.Exclude
     private byte[] imageData;
 
     public Product(Long id) {
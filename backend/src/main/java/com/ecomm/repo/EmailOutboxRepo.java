@@ -0,0 +1,19 @@
+package com.ecomm.repo;
+
+import com.ecomm.model.EmailOutboxEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepo extends JpaRepository<EmailOutboxEntry, Long> {
+
+    List<EmailOutboxEntry> findByNextAttemptAtLessThanEqualOrderByNextAttemptAtAscIdAsc(Instant now, Limit limit);
+
+    long countByNextAttemptAtIsNotNull();
+
+    long countByNextAttemptAtIsNull();
+}
@@ -0,0 +1,14 @@
+package com.ecomm.repo;
+
+import com.ecomm.model.InventoryJournalEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface InventoryJournalRepo extends JpaRepository<InventoryJournalEntry, Long> {
+
+    List<InventoryJournalEntry> findByOrderByIdAsc(Limit limit);
+}
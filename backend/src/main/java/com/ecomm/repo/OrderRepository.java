@@ -1,18 +1,62 @@
 package com.ecomm.repo;
 
+import com.ecomm.dto.OrderItemRow;
+import com.ecomm.dto.OrderSummaryRow;
 import com.ecomm.model.Order;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    @Query("SELECT DISTINCT o FROM Order o " +
-            "LEFT JOIN FETCH o.items i " +
-            "LEFT JOIN FETCH i.product " +
-            "WHERE o.user.id = :userId")
-    List<Order> findAllByUserIdWithItemsAndProducts(@Param("userId") Long userId);
+
+    // Order history, newest first, served by idx_orders_user_date. MySQL sorts null dates last when
+    // descending, so undated legacy orders are paged after all dated ones.
+    String SELECT_SUMMARY = "SELECT new com.ecomm.dto.OrderSummaryRow(o.id, o.razorpayOrderId, o.totalAmount, " +
+            "o.paymentStatus, o.orderDate) FROM Order o ";
+    String NEWEST_FIRST = "ORDER BY o.orderDate DESC, o.id DESC";
+
+    @Query(SELECT_SUMMARY + "WHERE o.user.id = :userId " + NEWEST_FIRST)
+    List<OrderSummaryRow> findSummariesByUserId(@Param("userId") Long userId);
+
+    @Query(SELECT_SUMMARY + "WHERE o.user.id = :userId " + NEWEST_FIRST)
+    List<OrderSummaryRow> findFirstSummaryPage(@Param("userId") Long userId, Limit limit);
+
+    // Dated orders only, so the range stays on idx_orders_user_date; undated ones follow via the queries below
+    @Query(SELECT_SUMMARY + "WHERE o.user.id = :userId AND (o.orderDate < :afterDate " +
+            "OR (o.orderDate = :afterDate AND o.id < :afterId)) " + NEWEST_FIRST)
+    List<OrderSummaryRow> findSummaryPageAfter(@Param("userId") Long userId,
+                                               @Param("afterDate") Instant afterDate,
+                                               @Param("afterId") long afterId,
+                                               Limit limit);
+
+    @Query(SELECT_SUMMARY + "WHERE o.user.id = :userId AND o.orderDate IS NULL " + NEWEST_FIRST)
+    List<OrderSummaryRow> findFirstUndatedSummaryPage(@Param("userId") Long userId, Limit limit);
+
+    @Query(SELECT_SUMMARY + "WHERE o.user.id = :userId AND o.orderDate IS NULL AND o.id < :afterId " + NEWEST_FIRST)
+    List<OrderSummaryRow> findUndatedSummaryPageAfter(@Param("userId") Long userId,
+                                                      @Param("afterId") long afterId,
+                                                      Limit limit);
+
+    // Lines with their checkout snapshot; the product table is not joined
+    @Query("SELECT new com.ecomm.dto.OrderItemRow(i.order.id, i.product.id, i.quantity, i.price, " +
+            "i.productName, i.imageKey) " +
+            "FROM OrderItem i " +
+            "WHERE i.order.id IN :orderIds ORDER BY i.id")
+    List<OrderItemRow> findItemRowsByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    // Order lines keep the image they were bought with, so a stored image is still in use while one refers to it
+    @Query("SELECT COUNT(i) FROM OrderItem i WHERE i.imageKey = :imageKey")
+    long countItemsByImageKey(@Param("imageKey") String imageKey);
+
     List<Order> findAllByUserId(Long userId);
 
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.items WHERE o.idempotencyKey = :key")
+    Optional<Order> findByIdempotencyKeyWithItems(@Param("key") String key);
+
 }
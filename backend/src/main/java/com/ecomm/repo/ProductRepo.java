@@ -1,21 +1,123 @@
 package com.ecomm.repo;
 
+import com.ecomm.dto.ProductDTO;
+import com.ecomm.dto.StockLevel;
 import com.ecomm.model.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepo extends JpaRepository<Product, Long> {
 
-    @Query("SELECT p from Product p WHERE " +
+    // Catalog reads select explicit columns so the image blob is never loaded
+    String SELECT_DTO = "SELECT new com.ecomm.dto.ProductDTO(p.id, p.name, p.description, p.brand, p.price, " +
+            "p.category, p.releaseDate, p.productAvailable, p.stockQuantity, p.imageName, p.imageType, p.imageKey, " +
+            "p.imageUpdatedAt) " +
+            "FROM Product p ";
+
+    @Query(SELECT_DTO + "WHERE " +
             "LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
             "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
             "LOWER(p.brand) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
             "LOWER(p.category) LIKE LOWER(CONCAT('%', :keyword, '%'))")
+    List<ProductDTO> searchProducts(@Param("keyword") String keyword);
 
-    List<Product> searchProducts(String keyword);
     Product findById(long id);
+
+    @Query(SELECT_DTO)
+    List<ProductDTO> findAllDtos();
+
+    @Query(SELECT_DTO + "WHERE p.id = :id")
+    Optional<ProductDTO> findDtoById(@Param("id") Long id);
+
+    @Query(SELECT_DTO + "WHERE p.id IN :ids")
+    List<ProductDTO> findDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Keyset pagination: every page seeks past the last (sort key, id) pair, so no OFFSET scans
+    @Query(SELECT_DTO + "ORDER BY p.id ASC")
+    List<ProductDTO> findFirstPageById(Limit limit);
+
+    @Query(SELECT_DTO + "WHERE p.id > :afterId ORDER BY p.id ASC")
+    List<ProductDTO> findPageAfterId(@Param("afterId") long afterId, Limit limit);
+
+    @Query(SELECT_DTO + "ORDER BY p.price ASC, p.id ASC")
+    List<ProductDTO> findFirstPageByPrice(Limit limit);
+
+    @Query(SELECT_DTO +
+            "WHERE p.price > :afterPrice OR (p.price = :afterPrice AND p.id > :afterId) " +
+            "ORDER BY p.price ASC, p.id ASC")
+    List<ProductDTO> findPageAfterPrice(@Param("afterPrice") double afterPrice,
+                                        @Param("afterId") long afterId,
+                                        Limit limit);
+
+    // Dated and undated products are paged separately: NULLS LAST or an IS NULL branch in the same query
+    // keeps MySQL from range-scanning idx_product_release_date_id and forces a filesort
+    @Query(SELECT_DTO + "WHERE p.releaseDate IS NOT NULL ORDER BY p.releaseDate DESC, p.id DESC")
+    List<ProductDTO> findFirstPageByReleaseDate(Limit limit);
+
+    @Query(SELECT_DTO +
+            "WHERE p.releaseDate < :afterDate OR (p.releaseDate = :afterDate AND p.id < :afterId) " +
+            "ORDER BY p.releaseDate DESC, p.id DESC")
+    List<ProductDTO> findPageAfterReleaseDate(@Param("afterDate") Date afterDate,
+                                              @Param("afterId") long afterId,
+                                              Limit limit);
+
+    // Undated products come after every dated one, newest id first
+    @Query(SELECT_DTO + "WHERE p.releaseDate IS NULL ORDER BY p.id DESC")
+    List<ProductDTO> findFirstUndatedPage(Limit limit);
+
+    // Once the previous page ended among undated products only those with a lower id remain
+    @Query(SELECT_DTO + "WHERE p.releaseDate IS NULL AND p.id < :afterId ORDER BY p.id DESC")
+    List<ProductDTO> findUndatedPageAfterId(@Param("afterId") long afterId, Limit limit);
+
+    @Query("SELECT p.imageKey FROM Product p WHERE p.id = :id")
+    String findImageKeyById(@Param("id") Long id);
+
+    long countByImageKey(String imageKey);
+
+    @Query("SELECT p.imageData FROM Product p WHERE p.id = :id")
+    byte[] findImageDataById(@Param("id") Long id);
+
+    @Query("SELECT p.id FROM Product p WHERE p.imageData IS NOT NULL AND p.imageKey IS NULL ORDER BY p.id")
+    List<Long> findIdsWithLegacyImage();
+
+    // Native because image_data is read-only in the entity mapping
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE product SET image_key = :imageKey, image_data = NULL, " +
+            "image_updated_at = COALESCE(image_updated_at, :migratedAt) WHERE id = :id", nativeQuery = true)
+    int moveImageToStore(@Param("id") Long id, @Param("imageKey") String imageKey,
+                         @Param("migratedAt") Instant migratedAt);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE product SET image_data = NULL WHERE id = :id", nativeQuery = true)
+    int clearLegacyImage(@Param("id") Long id);
+
+    // Check and decrement in one statement; returns 0 when the product is missing or short of stock
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity " +
+            "WHERE p.id = :id AND p.stockQuantity >= :quantity")
+    int decrementStockIfAvailable(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Query("SELECT new com.ecomm.dto.StockLevel(p.id, p.stockQuantity) FROM Product p")
+    List<StockLevel> findAllStockLevels();
+
+    @Query("SELECT new com.ecomm.dto.StockLevel(p.id, p.stockQuantity) FROM Product p WHERE p.id IN :ids")
+    List<StockLevel> findStockLevelsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.stockQuantity FROM Product p WHERE p.id = :id")
+    Integer findStockQuantityById(@Param("id") Long id);
 }
@@ -0,0 +1,119 @@
+package com.ecomm.service;
+
+import com.ecomm.model.EmailOutboxEntry;
+import com.ecomm.model.Order;
+import com.ecomm.model.User;
+import com.ecomm.repo.EmailOutboxRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Order confirmation mail goes through an outbox: the entry commits with the order, and a scheduled
+// dispatcher sends due entries in batches outside any transaction, so checkout never waits on SMTP and a
+// mail failure cannot roll back an order. Failed sends are retried with exponential backoff until
+// maxAttempts, after which the entry is parked. Delivery is at least once: a crash between sending and
+// deleting the entry sends that mail again.
+@Service
+public class EmailOutbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutbox.class);
+
+    @Autowired
+    private EmailOutboxRepo outboxRepo;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Value("${email.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${email.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${email.outbox.backoff-initial:PT30S}")
+    private Duration backoffInitial;
+
+    @Value("${email.outbox.backoff-max:PT1H}")
+    private Duration backoffMax;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    // The order must already have its id
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueOrderConfirmation(Order order, User user) {
+        Instant now = Instant.now();
+        outboxRepo.save(new EmailOutboxEntry(null, order.getId(), user.getEmail(), user.getUsername(),
+                order.getTotalAmount(), 0, now, null, now));
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:1000}")
+    public void dispatch() {
+        try {
+            List<EmailOutboxEntry> due;
+            do {
+                due = outboxRepo.findByNextAttemptAtLessThanEqualOrderByNextAttemptAtAscIdAsc(
+                        Instant.now(), Limit.of(batchSize));
+                due.forEach(this::send);
+            } while (due.size() == batchSize);
+        } catch (Exception e) {
+            logger.error("Email outbox dispatch failed; due entries will be retried", e);
+        }
+    }
+
+    private void send(EmailOutboxEntry entry) {
+        try {
+            emailService.sendOrderConfirmation(entry.getRecipient(), entry.getRecipientName(),
+                    entry.getOrderId(), entry.getTotalAmount());
+            outboxRepo.deleteById(entry.getId());
+            sent.increment();
+        } catch (RuntimeException e) {
+            failures.increment();
+            int attempts = entry.getAttempts() + 1;
+            entry.setAttempts(attempts);
+            entry.setLastError(truncate(String.valueOf(e.getCause() != null ? e.getCause() : e)));
+            if (attempts >= maxAttempts) {
+                entry.setNextAttemptAt(null);
+                logger.error("Giving up on confirmation mail for order {} after {} attempts",
+                        entry.getOrderId(), attempts, e);
+            } else {
+                entry.setNextAttemptAt(Instant.now().plus(backoff(attempts)));
+                logger.warn("Confirmation mail for order {} failed (attempt {}), retrying at {}",
+                        entry.getOrderId(), attempts, entry.getNextAttemptAt());
+            }
+            outboxRepo.save(entry);
+        }
+    }
+
+    // backoffInitial doubled per failed attempt, capped at backoffMax
+    private Duration backoff(int attempts) {
+        Duration delay = backoffInitial.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(backoffMax) > 0 ? backoffMax : delay;
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= 500 ? message : message.substring(0, 500);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", outboxRepo.countByNextAttemptAtIsNotNull());
+        stats.put("parked", outboxRepo.countByNextAttemptAtIsNull());
+        stats.put("sent", sent.sum());
+        stats.put("failures", failures.sum());
+        return stats;
+    }
+}
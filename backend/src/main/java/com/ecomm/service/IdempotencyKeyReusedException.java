@@ -0,0 +1,9 @@
+package com.ecomm.service;
+
+// Thrown when an idempotency key that already placed an order comes back with a different cart or total
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String key) {
+        super("Idempotency key " + key + " was already used for a different order request");
+    }
+}
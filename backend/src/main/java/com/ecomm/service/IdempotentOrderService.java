@@ -0,0 +1,100 @@
+package com.ecomm.service;
+
+import com.ecomm.dto.OrderRequest;
+import com.ecomm.dto.OrderResponse;
+import com.ecomm.model.Order;
+import com.ecomm.repo.OrderRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+// Makes order creation safe to retry. Each order is stored under its Idempotency-Key, or its Razorpay order
+// id when the client sends no key, behind a unique constraint. A repeated request is answered with the
+// original order, from a bounded cache of recent keys or from the table, without re-running validation,
+// stock or email work; a concurrent duplicate loses on the constraint, rolls back and replays the winner.
+// The order keeps a hash of the request it was placed for, and a key sent again with another cart or total
+// is refused rather than answered with an order the client did not ask for.
+@Service
+public class IdempotentOrderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotentOrderService.class);
+    private static final int MAX_KEY_LENGTH = 100;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderGroupCommitter orderGroupCommitter;
+
+    private final Cache<String, PlacedOrder> recentOrders;
+
+    public IdempotentOrderService(@Value("${orders.idempotency.cache-size:10000}") long cacheSize) {
+        this.recentOrders = Caffeine.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    public OrderResponse placeOrder(Long userId, String holder, OrderRequest request, String idempotencyKey) {
+        String key = idempotencyKey != null && !idempotencyKey.isBlank()
+                ? idempotencyKey.trim()
+                : request.getRazorpayOrderId();
+        if (key == null || key.isBlank()) {
+            return orderService.getOrderResponse(orderGroupCommitter.place(userId, holder, request, null));
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key is longer than " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String requestHash = OrderRequestHash.of(request);
+        Optional<OrderResponse> existing = findPlaced(key, userId, requestHash);
+        if (existing.isPresent()) {
+            logger.info("Replaying order {} for idempotency key {}", existing.get().getOrderId(), key);
+            return existing.get();
+        }
+        try {
+            Order order = orderGroupCommitter.place(userId, holder, request, key);
+            return remember(key, order).response();
+        } catch (DataIntegrityViolationException e) {
+            // Another request with the same key committed first
+            return findPlaced(key, userId, requestHash).orElseThrow(() -> e);
+        }
+    }
+
+    private Optional<OrderResponse> findPlaced(String key, Long userId, String requestHash) {
+        PlacedOrder placed = recentOrders.getIfPresent(key);
+        if (placed == null) {
+            placed = orderRepository.findByIdempotencyKeyWithItems(key)
+                    .map(order -> remember(key, order))
+                    .orElse(null);
+        }
+        if (placed == null) {
+            return Optional.empty();
+        }
+        if (!placed.userId().equals(userId)) {
+            throw new IllegalArgumentException("Idempotency key was used for another user's order");
+        }
+        // Orders placed before request hashes were stored have none to compare
+        if (placed.requestHash() != null && !placed.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReusedException(key);
+        }
+        return Optional.of(placed.response());
+    }
+
+    private PlacedOrder remember(String key, Order order) {
+        PlacedOrder placed = new PlacedOrder(order.getUser().getId(), order.getRequestHash(),
+                orderService.getOrderResponse(order));
+        recentOrders.put(key, placed);
+        return placed;
+    }
+
+    private record PlacedOrder(Long userId, String requestHash, OrderResponse response) {
+    }
+}
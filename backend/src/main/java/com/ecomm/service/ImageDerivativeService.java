@@ -0,0 +1,220 @@
+package com.ecomm.service;
+
+import com.ecomm.storage.ImageStore;
+import com.ecomm.storage.ImageVariant;
+import com.ecomm.storage.StoredImage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Generates resized JPEG variants of stored images on a small bounded worker pool.
+// Uploads only enqueue work; if the queue is full the variant is generated on a later request instead.
+// Sources are checked against maxPixels from their header before decoding, so a small, highly compressed
+// file cannot inflate into a heap-sized bitmap; sources that cannot be decoded are remembered by content key
+// and not queued again.
+@Service
+public class ImageDerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeService.class);
+    private static final String VARIANT_CONTENT_TYPE = "image/jpeg";
+
+    private final ImageStore imageStore;
+    private final ThreadPoolExecutor executor;
+    private final float jpegQuality;
+    private final long maxPixels;
+    // Source keys with a generation task queued or running, so bursts of requests enqueue it once
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    // Content keys never change bytes, so a source that failed to decode will fail again
+    private final Cache<String, Boolean> undecodable = Caffeine.newBuilder().maximumSize(10_000).build();
+
+    public ImageDerivativeService(ImageStore imageStore,
+                                  @Value("${images.derivatives.workers:2}") int workers,
+                                  @Value("${images.derivatives.queue-capacity:64}") int queueCapacity,
+                                  @Value("${images.derivatives.jpeg-quality:0.82}") float jpegQuality,
+                                  @Value("${images.derivatives.max-pixels:40000000}") long maxPixels) {
+        this.imageStore = imageStore;
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-derivatives-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public String getContentType() {
+        return VARIANT_CONTENT_TYPE;
+    }
+
+    public Optional<StoredImage> findVariant(String sourceKey, ImageVariant variant) {
+        return sourceKey == null ? Optional.empty() : imageStore.find(variant.keyFor(sourceKey));
+    }
+
+    public void scheduleVariants(String sourceKey) {
+        if (sourceKey == null || undecodable.getIfPresent(sourceKey) != null || !pending.add(sourceKey)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generateVariants(sourceKey);
+                } finally {
+                    pending.remove(sourceKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(sourceKey);
+            logger.warn("Image derivative queue full, deferring variants for {}", sourceKey);
+        }
+    }
+
+    public void deleteVariants(String sourceKey) {
+        for (ImageVariant variant : ImageVariant.values()) {
+            if (variant == ImageVariant.ORIGINAL) {
+                continue;
+            }
+            try {
+                imageStore.delete(variant.keyFor(sourceKey));
+            } catch (IOException e) {
+                logger.warn("Failed to delete {} variant of {}: {}", variant.getParam(), sourceKey, e.getMessage());
+            }
+        }
+    }
+
+    private void generateVariants(String sourceKey) {
+        Optional<StoredImage> source = imageStore.find(sourceKey);
+        if (source.isEmpty()) {
+            return;
+        }
+        try {
+            BufferedImage original = decode(source.get(), sourceKey);
+            if (original == null) {
+                undecodable.put(sourceKey, Boolean.TRUE);
+                return;
+            }
+            for (ImageVariant variant : ImageVariant.values()) {
+                if (variant == ImageVariant.ORIGINAL || imageStore.find(variant.keyFor(sourceKey)).isPresent()) {
+                    continue;
+                }
+                BufferedImage resized = resize(original, variant.getMaxDimension());
+                imageStore.putDerived(variant.keyFor(sourceKey), encodeJpeg(resized));
+            }
+            logger.debug("Generated image variants for {}", sourceKey);
+        } catch (Exception e) {
+            logger.error("Failed to generate variants for image {}", sourceKey, e);
+        }
+    }
+
+    // Reads the dimensions from the header and decodes only images within maxPixels; null when the image
+    // cannot or should not be decoded
+    private BufferedImage decode(StoredImage source, String sourceKey) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.path().toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                logger.warn("No ImageIO reader for image {}, serving originals only", sourceKey);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    logger.warn("Image {} is {} pixels, over the {} pixel limit; serving originals only",
+                            sourceKey, pixels, maxPixels);
+                    return null;
+                }
+                return reader.read(0, reader.getDefaultReadParam());
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Image {} could not be decoded, serving originals only: {}", sourceKey, e.getMessage());
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Fits the image inside maxDimension x maxDimension, never upscaling. Halves repeatedly before the
+    // final step so large downscales keep detail with plain bilinear filtering.
+    private BufferedImage resize(BufferedImage source, int maxDimension) {
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            current = draw(current, width, height);
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    // Draws onto an opaque RGB canvas; JPEG has no alpha, so transparency becomes white
+    private BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,21 @@
+package com.ecomm.service;
+
+import java.util.List;
+
+// Thrown when an all-or-nothing stock update fails; carries the outcome of every line
+public class InsufficientStockException extends RuntimeException {
+
+    private final List<StockDecrement> lines;
+
+    public InsufficientStockException(List<StockDecrement> lines) {
+        super("Insufficient stock for products: " + lines.stream()
+                .filter(line -> !line.succeeded())
+                .map(line -> String.valueOf(line.productId()))
+                .toList());
+        this.lines = List.copyOf(lines);
+    }
+
+    public List<StockDecrement> getLines() {
+        return lines;
+    }
+}
@@ -0,0 +1,63 @@
+package com.ecomm.service;
+
+import com.ecomm.model.InventoryJournalEntry;
+import com.ecomm.repo.InventoryJournalRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Durable side of the inventory ledger: sales are journaled with the order and applied to product rows later
+@Service
+public class InventoryJournal {
+
+    @Autowired
+    private InventoryJournalRepo journalRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Joins the caller's transaction so the journal rows commit or roll back with the sale. Inserted as one
+    // JDBC batch with database-assigned ids: a Hibernate table generator would allocate ids on a second
+    // pooled connection while the sale holds the first, and enough concurrent sales can exhaust the pool
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Map<Long, Integer> quantities) {
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> rows.add(new Object[]{productId, quantity, now}));
+        jdbcTemplate.batchUpdate("INSERT INTO inventory_journal (product_id, quantity, created_at) VALUES (?, ?, ?)",
+                rows);
+    }
+
+    // Applies up to batchSize pending entries as one UPDATE per product, sent as a single JDBC batch, and
+    // deletes them in the same transaction, so a crash either applies a batch completely or leaves it
+    // pending for the next flush
+    @Transactional
+    public Map<Long, Integer> flush(int batchSize) {
+        List<InventoryJournalEntry> pending = journalRepo.findByOrderByIdAsc(Limit.of(batchSize));
+        if (pending.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Integer> totals = new TreeMap<>();
+        for (InventoryJournalEntry entry : pending) {
+            totals.merge(entry.getProductId(), entry.getQuantity(), Integer::sum);
+        }
+        List<Object[]> updates = new ArrayList<>(totals.size());
+        totals.forEach((productId, quantity) -> updates.add(new Object[]{quantity, productId}));
+        // Already checked against the in-memory counters; the floor only matters when an admin set the stock
+        // below sales that were still pending, which the ledger logs and reconciles
+        jdbcTemplate.batchUpdate("UPDATE product SET stock_quantity = GREATEST(stock_quantity - ?, 0) WHERE id = ?",
+                updates);
+        journalRepo.deleteAllByIdInBatch(pending.stream().map(InventoryJournalEntry::getId).toList());
+        return totals;
+    }
+}
@@ -0,0 +1,225 @@
+package com.ecomm.service;
+
+import com.ecomm.dto.StockLevel;
+import com.ecomm.repo.ProductRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Authoritative available-stock counters kept in memory, one per product, updated with CAS so checkouts on
+// the same product never wait on a row lock. A sale is journaled in its order transaction and the journal
+// is applied to the product table in coalesced batches by the scheduled flush. On startup any journal left
+// by a crash is applied first and the counters are then loaded from the product rows.
+// The counters are per process, so this assumes a single application instance writes stock.
+@Component
+public class InventoryLedger implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryLedger.class);
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private InventoryJournal inventoryJournal;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${inventory.ledger.enabled:true}")
+    private boolean enabled;
+
+    @Value("${inventory.ledger.flush-batch-size:5000}")
+    private int flushBatchSize;
+
+    private final ConcurrentHashMap<Long, Counter> counters = new ConcurrentHashMap<>();
+    // Products whose available stock moved since the live stock stream last looked
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    // Serializes flushes with admin resets, so each sees the row the other left behind
+    private final Object rowLock = new Object();
+    private volatile boolean ready;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        int replayed = 0;
+        for (Map<Long, Integer> applied = inventoryJournal.flush(flushBatchSize); !applied.isEmpty();
+             applied = inventoryJournal.flush(flushBatchSize)) {
+            replayed += applied.size();
+        }
+        List<StockLevel> levels = productRepo.findAllStockLevels();
+        for (StockLevel level : levels) {
+            counters.put(level.productId(), new Counter(level.stockQuantity()));
+        }
+        ready = true;
+        logger.info("Inventory ledger loaded {} products after replaying journal for {} products",
+                levels.size(), replayed);
+    }
+
+    public boolean isEnabled() {
+        if (enabled && !ready) {
+            throw new IllegalStateException("Inventory ledger is still loading");
+        }
+        return enabled;
+    }
+
+    public StockDecrement.Outcome tryTake(Long productId, int quantity) {
+        Counter counter = counter(productId);
+        if (counter == null) {
+            return StockDecrement.Outcome.NOT_FOUND;
+        }
+        while (true) {
+            int available = counter.available.get();
+            if (available < quantity) {
+                return StockDecrement.Outcome.INSUFFICIENT_STOCK;
+            }
+            if (counter.available.compareAndSet(available, available - quantity)) {
+                changed.add(productId);
+                return StockDecrement.Outcome.DECREMENTED;
+            }
+        }
+    }
+
+    public void giveBack(Long productId, int quantity) {
+        Counter counter = counters.get(productId);
+        if (counter != null) {
+            counter.available.addAndGet(quantity);
+            changed.add(productId);
+        }
+    }
+
+    // Stock taken inside a transaction is returned if it rolls back; once committed it is in the journal.
+    // Released stock goes back only if the transaction commits.
+    public void settleOnCompletion(Map<Long, Integer> taken, Map<Long, Integer> released) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            released.forEach(this::giveBack);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    released.forEach(InventoryLedger.this::giveBack);
+                } else {
+                    taken.forEach(InventoryLedger.this::giveBack);
+                }
+            }
+        });
+    }
+
+    // After an admin edit the row holds the new absolute stock. Only the change to the row is added to the
+    // counter, so checkouts taking or handing back stock at the same moment, sales still in the journal and
+    // open holds all stay accounted for without being read.
+    public void reset(Long productId) {
+        if (!enabled || !ready) {
+            return;
+        }
+        synchronized (rowLock) {
+            Integer stock = productRepo.findStockQuantityById(productId);
+            if (stock == null) {
+                counters.remove(productId);
+                return;
+            }
+            Counter counter = counters.computeIfAbsent(productId, id -> new Counter(stock));
+            int delta = stock - counter.row.getAndSet(stock);
+            if (delta != 0) {
+                counter.available.addAndGet(delta);
+                changed.add(productId);
+            }
+        }
+    }
+
+    public void remove(Long productId) {
+        counters.remove(productId);
+        changed.remove(productId);
+    }
+
+    // Null when the product has no counter yet
+    public Integer available(Long productId) {
+        Counter counter = counters.get(productId);
+        return counter == null ? null : counter.available.get();
+    }
+
+    public Set<Long> drainChanged() {
+        Set<Long> drained = new HashSet<>();
+        for (Long productId : changed) {
+            if (changed.remove(productId)) {
+                drained.add(productId);
+            }
+        }
+        return drained;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.ledger.flush-interval-ms:200}")
+    public void flush() {
+        if (!enabled || !ready) {
+            return;
+        }
+        try {
+            Map<Long, Integer> applied;
+            synchronized (rowLock) {
+                applied = inventoryJournal.flush(flushBatchSize);
+                applied.forEach(this::rowDecremented);
+            }
+            if (applied.isEmpty()) {
+                return;
+            }
+            // Product rows only change here, so the read side refreshes after the flush rather than per sale
+            eventPublisher.publishEvent(new ProductChangedEvent(List.copyOf(applied.keySet())));
+        } catch (Exception e) {
+            logger.error("Inventory flush failed; pending journal entries will be retried", e);
+        }
+    }
+
+    // The journal flush never takes a row below zero. That can only happen when an admin set the stock
+    // lower than sales still in the journal; the part the row could not absorb was never there to sell, so
+    // the counter drops it too and stays equal to the row minus what is pending.
+    private void rowDecremented(Long productId, int quantity) {
+        Counter counter = counters.get(productId);
+        if (counter == null) {
+            return;
+        }
+        int row = counter.row.addAndGet(-quantity);
+        if (row < 0) {
+            logger.warn("Journal flush for product {} exceeded its stock by {}; row clamped at 0", productId, -row);
+            counter.row.set(0);
+            counter.available.addAndGet(-row);
+            changed.add(productId);
+        }
+    }
+
+    // Products created after startup are loaded on first use
+    private Counter counter(Long productId) {
+        return counters.computeIfAbsent(productId, id -> {
+            Integer stock = productRepo.findStockQuantityById(id);
+            return stock == null ? null : new Counter(stock);
+        });
+    }
+
+    private static final class Counter {
+        private final AtomicInteger available;
+        // Stock on the product row as of the last load, flush or reset; only changed under rowLock
+        private final AtomicInteger row;
+
+        Counter(int available) {
+            this.available = new AtomicInteger(available);
+            this.row = new AtomicInteger(available);
+        }
+    }
+}
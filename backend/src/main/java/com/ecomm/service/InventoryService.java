@@ -0,0 +1,176 @@
+package com.ecomm.service;
+
+import com.ecomm.repo.ProductRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Entry point for stock mutations. With the inventory ledger enabled stock is taken from the in-memory
+// counters and journaled for the write-behind flush; otherwise each line is a conditional UPDATE, so the
+// availability check and the decrement are one atomic statement either way.
+@Service
+public class InventoryService {
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private InventoryJournal inventoryJournal;
+
+    @Autowired
+    private StockReservations stockReservations;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public StockDecrement decrement(Long productId, int quantity) {
+        if (inventoryLedger.isEnabled()) {
+            StockDecrement result = take(productId, quantity);
+            if (result.succeeded()) {
+                commitTaken(Map.of(productId, quantity), Map.of(), Map.of(productId, quantity));
+            }
+            return result;
+        }
+        StockDecrement result = apply(productId, quantity);
+        if (result.succeeded()) {
+            eventPublisher.publishEvent(ProductChangedEvent.of(productId));
+        }
+        return result;
+    }
+
+    // Applies every line and reports each outcome; if any line fails nothing is kept and
+    // InsufficientStockException lists the outcomes. Lines for the same product are merged and products are
+    // handled in id order, so two orders touching the same products lock them in the same sequence.
+    @Transactional
+    public List<StockDecrement> decrementAll(Map<Long, Integer> quantities) {
+        return decrementAll(quantities, null, null);
+    }
+
+    // As above, but stock the holder holds for the reservation is sold as is; only the difference between the held and
+    // the ordered quantities is taken, or handed back once the order commits. If the transaction rolls back
+    // the claim is undone and the held stock stays with its reservation.
+    @Transactional
+    public List<StockDecrement> decrementAll(Map<Long, Integer> quantities, String reservationId, String holder) {
+        Map<Long, Integer> ordered = new TreeMap<>(quantities);
+        ordered.values().forEach(InventoryService::requirePositive);
+
+        if (inventoryLedger.isEnabled()) {
+            Map<Long, Integer> held = reservationId == null ? Map.of() : stockReservations.claim(reservationId, holder);
+            List<StockDecrement> results = takeAll(ordered, held);
+            commitTaken(excess(ordered, held), excess(held, ordered), ordered);
+            return results;
+        }
+
+        List<StockDecrement> results = new ArrayList<>(ordered.size());
+        ordered.forEach((productId, quantity) -> results.add(apply(productId, quantity)));
+        // Thrown out of the transaction, so the lines that did succeed are rolled back
+        if (results.stream().anyMatch(result -> !result.succeeded())) {
+            throw new InsufficientStockException(results);
+        }
+        eventPublisher.publishEvent(new ProductChangedEvent(List.copyOf(ordered.keySet())));
+        return results;
+    }
+
+    // Holds stock for a checkout that has not been paid yet, all or nothing. Returns false when the ledger is
+    // off: holds live next to the ledger counters, and without it stock is only taken when the order is placed.
+    // The holder's older holds beyond its limit are handed back before the new cart takes stock.
+    public boolean reserve(String reservationId, String holder, Map<Long, Integer> quantities) {
+        Map<Long, Integer> ordered = new TreeMap<>(quantities);
+        ordered.values().forEach(InventoryService::requirePositive);
+        if (!inventoryLedger.isEnabled()) {
+            return false;
+        }
+        stockReservations.checkLimits(ordered);
+        stockReservations.makeRoom(holder);
+        takeAll(ordered, Map.of());
+        if (!stockReservations.hold(reservationId, holder, ordered)) {
+            ordered.forEach(inventoryLedger::giveBack);
+            throw new IllegalArgumentException("Stock is already reserved for " + reservationId);
+        }
+        return true;
+    }
+
+    // Takes whatever the held stock does not cover. On failure what was taken goes back to the ledger and
+    // InsufficientStockException lists the outcomes; held stock is left to the caller either way.
+    private List<StockDecrement> takeAll(Map<Long, Integer> ordered, Map<Long, Integer> held) {
+        List<StockDecrement> results = new ArrayList<>(ordered.size());
+        Map<Long, Integer> taken = new LinkedHashMap<>();
+        ordered.forEach((productId, quantity) -> {
+            int missing = quantity - held.getOrDefault(productId, 0);
+            StockDecrement.Outcome outcome = missing > 0
+                    ? inventoryLedger.tryTake(productId, missing)
+                    : StockDecrement.Outcome.DECREMENTED;
+            results.add(new StockDecrement(productId, quantity, outcome));
+            if (outcome == StockDecrement.Outcome.DECREMENTED && missing > 0) {
+                taken.put(productId, missing);
+            }
+        });
+        if (results.stream().anyMatch(result -> !result.succeeded())) {
+            taken.forEach(inventoryLedger::giveBack);
+            throw new InsufficientStockException(results);
+        }
+        return results;
+    }
+
+    // What a has beyond b, per product
+    private static Map<Long, Integer> excess(Map<Long, Integer> a, Map<Long, Integer> b) {
+        Map<Long, Integer> excess = new TreeMap<>();
+        a.forEach((productId, quantity) -> {
+            int extra = quantity - b.getOrDefault(productId, 0);
+            if (extra > 0) {
+                excess.put(productId, extra);
+            }
+        });
+        return excess;
+    }
+
+    private StockDecrement take(Long productId, int quantity) {
+        requirePositive(quantity);
+        return new StockDecrement(productId, quantity, inventoryLedger.tryTake(productId, quantity));
+    }
+
+    // Registered before journaling so a failed insert also hands the taken stock back. Held stock the order
+    // did not need is released only on commit, so a rollback leaves the reservation whole.
+    private void commitTaken(Map<Long, Integer> taken, Map<Long, Integer> unusedHeld, Map<Long, Integer> sold) {
+        inventoryLedger.settleOnCompletion(taken, unusedHeld);
+        inventoryJournal.record(sold);
+    }
+
+    // Admin edits write an absolute stock level straight to the product row
+    public void stockOverwritten(Long productId) {
+        inventoryLedger.reset(productId);
+    }
+
+    public void productDeleted(Long productId) {
+        inventoryLedger.remove(productId);
+    }
+
+    private StockDecrement apply(Long productId, int quantity) {
+        requirePositive(quantity);
+        if (productRepo.decrementStockIfAvailable(productId, quantity) == 1) {
+            return new StockDecrement(productId, quantity, StockDecrement.Outcome.DECREMENTED);
+        }
+        // Nothing was updated: tell a missing product apart from a short one
+        StockDecrement.Outcome outcome = productRepo.existsById(productId)
+                ? StockDecrement.Outcome.INSUFFICIENT_STOCK
+                : StockDecrement.Outcome.NOT_FOUND;
+        return new StockDecrement(productId, quantity, outcome);
+    }
+
+    private static void requirePositive(int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.ecomm.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Keyset position in a user's order history, newest first: date and id of the last order on a page,
+// encoded as an opaque url-safe token like ProductCursor
+public record OrderCursor(Instant orderDate, long lastId) {
+
+    public String encode() {
+        String raw = (orderDate == null ? "" : orderDate.toString()) + "|" + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OrderCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            // An empty date means the last order on the previous page had none
+            Instant orderDate = parts[0].isEmpty() ? null : Instant.parse(parts[0]);
+            return new OrderCursor(orderDate, Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
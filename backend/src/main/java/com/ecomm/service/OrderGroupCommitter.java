@@ -0,0 +1,264 @@
+package com.ecomm.service;
+
+import com.ecomm.dto.OrderRequest;
+import com.ecomm.model.Order;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+// Optional group commit for order placement. With orders.group-commit.enabled, callers queue their order and
+// wait on a future while a single writer thread places up to maxBatch queued orders in one transaction,
+// waiting at most maxDelay for a batch to fill, so a burst of checkouts shares one commit. If an order in a
+// batch fails the transaction rolls back, which also hands back the stock every order in it took, and the
+// batch is re-run without it; failures are reported only after the rest have committed, so a duplicate that
+// lost on the idempotency key can already see the order that won. When the failure cannot be pinned on one
+// order (the commit itself failed) each order is retried in its own transaction.
+//
+// Without group commit, orders are placed on the caller's thread, at most one fewer at a time than the
+// connection pool holds. Order and item ids come from Hibernate's table generator, which allocates a block on
+// a second pooled connection while the order transaction holds its own; if every connection belonged to an
+// order waiting for ids, the allocation could never get one.
+@Component
+public class OrderGroupCommitter {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderGroupCommitter.class);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final int maxBatch;
+    private final Duration maxDelay;
+    private final Duration timeout;
+    private final BlockingQueue<PendingOrder> queue;
+    private final Semaphore directWrites;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private Thread writer;
+    private volatile boolean running;
+
+    public OrderGroupCommitter(@Value("${orders.group-commit.enabled:false}") boolean enabled,
+                               @Value("${orders.group-commit.max-batch:32}") int maxBatch,
+                               @Value("${orders.group-commit.max-delay:PT0.005S}") Duration maxDelay,
+                               @Value("${orders.group-commit.queue-capacity:1000}") int queueCapacity,
+                               @Value("${orders.group-commit.timeout:PT10S}") Duration timeout,
+                               @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        this.enabled = enabled;
+        this.maxBatch = maxBatch;
+        this.maxDelay = maxDelay;
+        this.timeout = timeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.directWrites = new Semaphore(Math.max(1, connectionPoolSize - 1), true);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "order-group-commit");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("Order group commit enabled: up to {} orders or {} ms per transaction",
+                maxBatch, maxDelay.toMillis());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (writer != null) {
+            writer.interrupt();
+        }
+        List<PendingOrder> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(order -> order.result.completeExceptionally(
+                new IllegalStateException("Order service is shutting down")));
+    }
+
+    // Places the order in the caller's thread when group commit is off
+    public Order place(Long userId, String holder, OrderRequest request, String idempotencyKey) {
+        if (!enabled) {
+            return placeDirectly(userId, holder, request, idempotencyKey);
+        }
+        PendingOrder pending = new PendingOrder(userId, holder, request, idempotencyKey);
+        if (!queue.offer(pending)) {
+            rejected.increment();
+            throw new IllegalStateException("Too many orders in progress, please retry");
+        }
+        try {
+            return pending.result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // The order may still commit; a retry with the same idempotency key will find it
+            throw new IllegalStateException("Timed out waiting for the order to be placed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for the order to be placed");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private Order placeDirectly(Long userId, String holder, OrderRequest request, String idempotencyKey) {
+        try {
+            if (!directWrites.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new IllegalStateException("Too many orders in progress, please retry");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting to place the order");
+        }
+        try {
+            return orderService.createAndPlaceOrder(userId, holder, request, idempotencyKey);
+        } finally {
+            directWrites.release();
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingOrder> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                PendingOrder first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelay.toNanos();
+                while (batch.size() < maxBatch) {
+                    queue.drainTo(batch, maxBatch - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatch || remaining <= 0) {
+                        break;
+                    }
+                    PendingOrder next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (Throwable e) {
+                // Never leave a caller waiting on a batch the writer could not finish
+                logger.error("Order group commit failed", e);
+                batch.forEach(order -> order.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+        batch.forEach(order -> order.result.completeExceptionally(
+                new IllegalStateException("Order service is shutting down")));
+    }
+
+    private void commit(List<PendingOrder> batch) {
+        List<PendingOrder> remaining = new ArrayList<>(batch);
+        Map<PendingOrder, RuntimeException> failures = new LinkedHashMap<>();
+        while (!remaining.isEmpty()) {
+            int[] failedAt = {-1};
+            try {
+                List<Order> orders = transactionTemplate.execute(status -> {
+                    List<Order> placed = new ArrayList<>(remaining.size());
+                    for (int i = 0; i < remaining.size(); i++) {
+                        PendingOrder pending = remaining.get(i);
+                        failedAt[0] = i;
+                        placed.add(orderService.createAndPlaceOrder(pending.userId, pending.holder,
+                                pending.request, pending.idempotencyKey));
+                    }
+                    failedAt[0] = -1;
+                    return placed;
+                });
+                batches.increment();
+                committed.add(remaining.size());
+                for (int i = 0; i < remaining.size(); i++) {
+                    remaining.get(i).result.complete(orders.get(i));
+                }
+                break;
+            } catch (RuntimeException e) {
+                if (failedAt[0] < 0) {
+                    commitEachAlone(remaining, failures);
+                    break;
+                }
+                failures.put(remaining.remove(failedAt[0]), e);
+            }
+        }
+        failed.add(failures.size());
+        failures.forEach((pending, e) -> pending.result.completeExceptionally(e));
+    }
+
+    private void commitEachAlone(List<PendingOrder> orders, Map<PendingOrder, RuntimeException> failures) {
+        for (PendingOrder pending : orders) {
+            try {
+                Order order = orderService.createAndPlaceOrder(pending.userId, pending.holder, pending.request,
+                        pending.idempotencyKey);
+                batches.increment();
+                committed.increment();
+                pending.result.complete(order);
+            } catch (RuntimeException e) {
+                failures.put(pending, e);
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queued", queue.size());
+        stats.put("transactions", batches.sum());
+        stats.put("committedOrders", committed.sum());
+        stats.put("failedOrders", failed.sum());
+        stats.put("rejectedOrders", rejected.sum());
+        long transactions = batches.sum();
+        stats.put("averageOrdersPerCommit", transactions == 0 ? 0.0 : (double) committed.sum() / transactions);
+        return stats;
+    }
+
+    private static final class PendingOrder {
+        private final Long userId;
+        private final String holder;
+        private final OrderRequest request;
+        private final String idempotencyKey;
+        private final CompletableFuture<Order> result = new CompletableFuture<>();
+
+        PendingOrder(Long userId, String holder, OrderRequest request, String idempotencyKey) {
+            this.userId = userId;
+            this.holder = holder;
+            this.request = request;
+            this.idempotencyKey = idempotencyKey;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.ecomm.service;
+
+import com.ecomm.dto.CursorPage;
+import com.ecomm.dto.OrderItemDTO;
+import com.ecomm.dto.OrderResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Per-user order history: the full list and first pages, the views a page visit asks for. One entry per
+// user holds all of that user's views, so a checkout drops them together once it commits. Entries are
+// bounded by estimated bytes like ProductCache. Views are loaded inside the entry's compute, so an
+// invalidation that arrives during a load waits for it and then removes the stale result.
+@Component
+public class OrderHistoryCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderHistoryCache.class);
+    // View key of the unpaged history; first pages are keyed by their size
+    private static final int FULL_HISTORY = 0;
+
+    private final boolean enabled;
+    private final Cache<Long, UserHistory> histories;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public OrderHistoryCache(@Value("${orders.history-cache.enabled:true}") boolean enabled,
+                             @Value("${orders.history-cache.max-bytes:33554432}") long maxBytes) {
+        this.enabled = enabled;
+        this.histories = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long userId, UserHistory history) -> history.bytes)
+                .recordStats()
+                .build();
+        logger.info("Order history cache {}", enabled ? "enabled" : "disabled");
+    }
+
+    public List<OrderResponse> getFullHistory(Long userId, Supplier<List<OrderResponse>> loader) {
+        return get(userId, FULL_HISTORY, () -> List.copyOf(loader.get()));
+    }
+
+    public CursorPage<OrderResponse> getFirstPage(Long userId, int size, Supplier<CursorPage<OrderResponse>> loader) {
+        return get(userId, size, loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(Long userId, int view, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        UserHistory cached = histories.getIfPresent(userId);
+        if (cached != null && cached.views.containsKey(view)) {
+            hits.increment();
+            return (T) cached.views.get(view);
+        }
+        misses.increment();
+        UserHistory history = histories.asMap().compute(userId, (id, existing) -> {
+            if (existing != null && existing.views.containsKey(view)) {
+                return existing;
+            }
+            return (existing == null ? UserHistory.EMPTY : existing).with(view, loader.get());
+        });
+        return (T) history.views.get(view);
+    }
+
+    // Published by OrderService; runs only once the order's transaction has committed
+    @TransactionalEventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        histories.invalidate(event.userId());
+        invalidations.increment();
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats evictions = histories.stats();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 1.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("invalidations", invalidations.sum());
+        stats.put("evictions", evictions.evictionCount());
+        stats.put("evictedBytes", evictions.evictionWeight());
+        stats.put("users", histories.estimatedSize());
+        histories.policy().eviction().ifPresent(eviction -> {
+            stats.put("weightedBytes", eviction.weightedSize().orElse(0));
+            stats.put("maxBytes", eviction.getMaximum());
+        });
+        return stats;
+    }
+
+    // Immutable; adding a view makes a new entry so Caffeine re-weighs it
+    private static final class UserHistory {
+        static final UserHistory EMPTY = new UserHistory(Map.of(), 64);
+
+        private final Map<Integer, Object> views;
+        private final int bytes;
+
+        UserHistory(Map<Integer, Object> views, int bytes) {
+            this.views = views;
+            this.bytes = bytes;
+        }
+
+        UserHistory with(int view, Object value) {
+            Map<Integer, Object> next = new HashMap<>(views);
+            next.put(view, value);
+            long size = (long) bytes + estimateBytes(value);
+            return new UserHistory(Map.copyOf(next), (int) Math.min(Integer.MAX_VALUE, size));
+        }
+    }
+
+    private static long estimateBytes(Object view) {
+        List<?> orders = view instanceof CursorPage<?> page ? page.getItems() : (List<?>) view;
+        long total = 64;
+        for (Object order : orders) {
+            total += estimateBytes((OrderResponse) order);
+        }
+        return total;
+    }
+
+    // Rough retained size: object headers and primitives plus two bytes per char of each string
+    private static long estimateBytes(OrderResponse order) {
+        long total = 120 + 2L * (length(order.getRazorpayOrderId()) + length(order.getStatus()));
+        if (order.getItems() != null) {
+            for (OrderItemDTO item : order.getItems()) {
+                total += 80 + 2L * (length(item.getProductName()) + length(item.getImageUrl()));
+            }
+        }
+        return total;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
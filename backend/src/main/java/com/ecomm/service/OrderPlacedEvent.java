@@ -0,0 +1,6 @@
+package com.ecomm.service;
+
+// Published inside the transaction that places an order; listeners that cache per-user order data drop it
+// once that transaction commits
+public record OrderPlacedEvent(Long userId, Long orderId) {
+}
@@ -0,0 +1,34 @@
+package com.ecomm.service;
+
+import com.ecomm.dto.OrderItemDTO;
+import com.ecomm.dto.OrderRequest;
+import com.ecomm.storage.ContentHash;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Fingerprint of what an order request asks for: its products, their quantities and the total. Lines are
+// merged per product and sorted, so a retry that lists the same cart in another order hashes the same.
+public final class OrderRequestHash {
+
+    private OrderRequestHash() {
+    }
+
+    public static String of(OrderRequest request) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        if (request.getItems() != null) {
+            for (OrderItemDTO item : request.getItems()) {
+                quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        StringBuilder canonical = new StringBuilder();
+        quantities.forEach((productId, quantity) -> canonical.append(productId).append('x').append(quantity).append(';'));
+        canonical.append("total=").append(request.getTotalAmount());
+
+        MessageDigest digest = ContentHash.newDigest();
+        digest.update(canonical.toString().getBytes(StandardCharsets.UTF_8));
+        return ContentHash.toKey(digest);
+    }
+}
@@ -1,8 +1,11 @@
 package com.ecomm.service;
 
+import com.ecomm.dto.CursorPage;
 import com.ecomm.dto.OrderItemDTO;
+import com.ecomm.dto.OrderItemRow;
 import com.ecomm.dto.OrderRequest;
 import com.ecomm.dto.OrderResponse;
+import com.ecomm.dto.OrderSummaryRow;
 import com.ecomm.model.Order;
 import com.ecomm.model.OrderItem;
 import com.ecomm.model.Product;
@@ -13,49 +16,71 @@ import com.ecomm.repo.UserRepo;
 import com.razorpay.RazorpayException;
 import lombok.RequiredArgsConstructor;
 import org.json.JSONObject;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class OrderService {
 
-    @Autowired
-    private EmailService emailService;
-
     private final OrderRepository orderRepository;
     private final ProductRepo productRepository;
     private final UserRepo userRepository;
     private final PaymentService razorPayService;
+    private final InventoryService inventoryService;
+    private final EmailOutbox emailOutbox;
+    private final OrderHistoryCache orderHistoryCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${orders.page.default-size:20}")
+    private int defaultPageSize;
 
-    public Order createAndPlaceOrder(Long userId, OrderRequest request) {
+    @Value("${orders.page.max-size:100}")
+    private int maxPageSize;
+
+    // Stock is taken inside this transaction, so a short line rolls back the others. Callers go through
+    // IdempotentOrderService, which replays an order already placed under the same key.
+    @Transactional
+    public Order createAndPlaceOrder(Long userId, String holder, OrderRequest request, String idempotencyKey) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+        // One query for every product in the cart rather than a lookup per line
+        Map<Long, Integer> quantities = request.getItems().stream()
+                .collect(Collectors.toMap(OrderItemDTO::getProductId, OrderItemDTO::getQuantity, Integer::sum));
+        Map<Long, Product> products = productRepository.findAllById(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
         List<OrderItem> orderItems = new ArrayList<>();
         double calculatedTotal = 0;
 
         for (OrderItemDTO item : request.getItems()) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new RuntimeException("Product not found: " + item.getProductId()));
-
-            if (product.getStockQuantity() < item.getQuantity()) {
-                throw new RuntimeException("Insufficient stock for product: " + product.getName());
+            Product product = products.get(item.getProductId());
+            if (product == null) {
+                throw new RuntimeException("Product not found: " + item.getProductId());
             }
 
             OrderItem orderItem = new OrderItem();
             orderItem.setProduct(product);
             orderItem.setQuantity(item.getQuantity());
             orderItem.setPrice(product.getPrice());
+            orderItem.setProductName(product.getName());
+            orderItem.setImageKey(product.getImageKey());
             calculatedTotal += product.getPrice() * item.getQuantity();
             orderItems.add(orderItem);
         }
@@ -69,20 +94,23 @@ public class OrderService {
         order.setTotalAmount(calculatedTotal);
         order.setPaymentStatus("PAID");
         order.setRazorpayOrderId(request.getRazorpayOrderId());
+        order.setRazorpayPaymentId(request.getRazorpayPaymentId());
+        order.setIdempotencyKey(idempotencyKey);
+        order.setRequestHash(idempotencyKey != null ? OrderRequestHash.of(request) : null);
         order.setOrderDate(Instant.now());
         order.setItems(orderItems);
         orderItems.forEach(item -> item.setOrder(order));
 
-        // Update stock
-        for (OrderItemDTO item : request.getItems()) {
-            Product product = productRepository.findById(item.getProductId()).get();
-            product.setStockQuantity(product.getStockQuantity() - item.getQuantity());
-            productRepository.save(product);
-        }
+        // Update stock, selling whatever the holder held for this Razorpay order at checkout
+        inventoryService.decrementAll(quantities, request.getRazorpayOrderId(), holder);
 
-        emailService.sendOrderConfirmation(user.getEmail(), user.getUsername(), order.getId(), calculatedTotal);
+        // The confirmation mail is sent after commit by the outbox dispatcher, with the saved order's id
+        // Flushed here so a concurrent duplicate fails on the unique key before any more work is done
+        Order savedOrder = orderRepository.saveAndFlush(order);
+        emailOutbox.enqueueOrderConfirmation(savedOrder, user);
+        eventPublisher.publishEvent(new OrderPlacedEvent(userId, savedOrder.getId()));
 
-        return orderRepository.save(order);
+        return savedOrder;
     }
 
 
@@ -93,33 +121,96 @@ public class OrderService {
     }
 
     public List<OrderResponse> getUserOrders(Long userId) {
-        // Use the new repository method that fetches products
-        List<Order> orders = orderRepository.findAllByUserIdWithItemsAndProducts(userId);
+        return orderHistoryCache.getFullHistory(userId,
+                () -> toResponses(orderRepository.findSummariesByUserId(userId)));
+    }
+
+    public CursorPage<OrderResponse> getUserOrderPage(Long userId, String cursorToken, Integer requestedSize) {
+        OrderCursor cursor = (cursorToken == null || cursorToken.isBlank()) ? null : OrderCursor.decode(cursorToken);
+        int size = resolvePageSize(requestedSize);
+        // First pages are what a visit to the orders page asks for; later pages go to the database
+        if (cursor == null) {
+            return orderHistoryCache.getFirstPage(userId, size, () -> loadOrderPage(userId, null, size));
+        }
+        return loadOrderPage(userId, cursor, size);
+    }
+
+    private CursorPage<OrderResponse> loadOrderPage(Long userId, OrderCursor cursor, int size) {
+        // One extra row tells whether another page exists
+        Limit limit = Limit.of(size + 1);
+        List<OrderSummaryRow> rows;
+        if (cursor == null) {
+            rows = orderRepository.findFirstSummaryPage(userId, limit);
+        } else if (cursor.orderDate() == null) {
+            rows = orderRepository.findUndatedSummaryPageAfter(userId, cursor.lastId(), limit);
+        } else {
+            rows = orderRepository.findSummaryPageAfter(userId, cursor.orderDate(), cursor.lastId(), limit);
+            // Undated orders sort after every dated one; a page that runs out of dated orders continues with them
+            if (rows.size() < limit.max()) {
+                rows = new ArrayList<>(rows);
+                rows.addAll(orderRepository.findFirstUndatedSummaryPage(userId, Limit.of(limit.max() - rows.size())));
+            }
+        }
+
+        boolean hasMore = rows.size() > size;
+        List<OrderSummaryRow> pageRows = hasMore ? rows.subList(0, size) : rows;
+        OrderSummaryRow last = hasMore ? pageRows.get(pageRows.size() - 1) : null;
+        String nextCursor = last == null ? null : new OrderCursor(last.orderDate(), last.id()).encode();
+        List<OrderResponse> items = toResponses(pageRows);
+        return new CursorPage<>(items, nextCursor, items.size());
+    }
+
+    private int resolvePageSize(Integer requestedSize) {
+        if (requestedSize == null) {
+            return defaultPageSize;
+        }
+        if (requestedSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return Math.min(requestedSize, maxPageSize);
+    }
+
+    // Headers and lines come from two projection queries; no entities, users or product rows are loaded
+    private List<OrderResponse> toResponses(List<OrderSummaryRow> orders) {
+        if (orders.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<OrderItemDTO>> itemsByOrder = orderRepository
+                .findItemRowsByOrderIdIn(orders.stream().map(OrderSummaryRow::id).toList()).stream()
+                .collect(Collectors.groupingBy(OrderItemRow::orderId,
+                        Collectors.mapping(OrderItemRow::toDto, Collectors.toList())));
 
         return orders.stream().map(order -> {
             OrderResponse dto = new OrderResponse();
-            dto.setRazorpayOrderId(order.getRazorpayOrderId());
-            dto.setAmount(order.getTotalAmount());
+            dto.setRazorpayOrderId(order.razorpayOrderId());
+            dto.setAmount(order.totalAmount());
             dto.setCurrency("INR");
-            dto.setOrderId(order.getId());
-            dto.setStatus(order.getPaymentStatus());
-            dto.setOrderDate(order.getOrderDate());
-
-            // Now items and products are properly loaded
-            dto.setItems(order.getItems().stream().map(item -> {
-                OrderItemDTO itemDto = new OrderItemDTO();
-                itemDto.setProductId(item.getProduct().getId());
-                itemDto.setQuantity(item.getQuantity());
-                itemDto.setProductName(item.getProduct().getName());
-                itemDto.setPrice(item.getProduct().getPrice());
-                itemDto.setImageUrl("/api/product/" + item.getProduct().getId() + "/image");
-                return itemDto;
-            }).collect(Collectors.toList()));
-
+            dto.setOrderId(order.id());
+            dto.setStatus(order.paymentStatus());
+            dto.setOrderDate(order.orderDate());
+            dto.setItems(itemsByOrder.getOrDefault(order.id(), List.of()));
             return dto;
         }).collect(Collectors.toList());
     }
 
+    // For an order entity just placed or replayed; history goes through the projections above
+    public OrderResponse getOrderResponse(Order order) {
+        OrderResponse dto = new OrderResponse();
+        dto.setRazorpayOrderId(order.getRazorpayOrderId());
+        dto.setAmount(order.getTotalAmount());
+        dto.setCurrency("INR");
+        dto.setOrderId(order.getId());
+        dto.setStatus(order.getPaymentStatus());
+        dto.setOrderDate(order.getOrderDate());
+        // getId() on the lazy product reference does not initialize it
+        dto.setItems(order.getItems().stream()
+                .map(item -> new OrderItemRow(order.getId(),
+                        item.getProduct() == null ? null : item.getProduct().getId(), item.getQuantity(),
+                        item.getPrice(), item.getProductName(), item.getImageKey()).toDto())
+                .collect(Collectors.toList()));
+        return dto;
+    }
+
     public Order getOrderById(Long id) {
         return orderRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
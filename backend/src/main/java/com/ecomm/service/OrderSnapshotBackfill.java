@@ -0,0 +1,50 @@
+package com.ecomm.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// One-shot fill of the product snapshot on order lines written before it existed, copied from the product
+// as it is now since the name and image at purchase time were never recorded; the price paid already was.
+// Run once with --orders.snapshot-backfill.enabled=true. Works through id ranges so no statement holds locks on
+// many rows, and only touches lines without a snapshot, so reruns are safe. Lines whose product is gone
+// keep an empty name.
+@Component
+@ConditionalOnProperty(name = "orders.snapshot-backfill.enabled", havingValue = "true")
+public class OrderSnapshotBackfill implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderSnapshotBackfill.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public OrderSnapshotBackfill(JdbcTemplate jdbcTemplate,
+                                 @Value("${orders.snapshot-backfill.batch-size:5000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Long maxId = jdbcTemplate.queryForObject(
+                "SELECT MAX(id) FROM order_item WHERE product_name IS NULL", Long.class);
+        if (maxId == null) {
+            logger.info("No order lines need a product snapshot");
+            return;
+        }
+        long updated = 0;
+        for (long from = 0; from <= maxId; from += batchSize) {
+            updated += jdbcTemplate.update(
+                    "UPDATE order_item i JOIN product p ON p.id = i.product_id " +
+                            "SET i.product_name = p.name, i.image_key = p.image_key " +
+                            "WHERE i.product_name IS NULL AND i.id > ? AND i.id <= ?",
+                    from, from + batchSize);
+        }
+        logger.info("Backfilled the product snapshot on {} order lines", updated);
+    }
+}
@@ -31,6 +31,8 @@ public class PaymentService {
 
     private final RazorpayClient razorpayClient;
 
+    private final InventoryService inventoryService;
+
     @Value("${razorpay.key}")
     private String razorpayKey;
 
@@ -48,6 +50,24 @@ public class PaymentService {
         return order.toString();
     }
 
+    // Holds the cart's stock under the new Razorpay order id until the paid order claims it, the hold expires
+    // or the same user starts another checkout. The Razorpay order comes first because its id is the key; if
+    // the hold fails it is simply never paid.
+    public String createOrder(Double amount, String currency, String receipt, String username,
+                              Map<Long, Integer> quantities) throws RazorpayException {
+        JSONObject orderRequest = new JSONObject();
+        orderRequest.put("amount", amount);
+        orderRequest.put("currency", currency);
+        orderRequest.put("receipt", receipt);
+        orderRequest.put("payment_capture", 1); // auto-capture payment
+
+        Order order = razorpayClient.orders.create(orderRequest);
+        if (!quantities.isEmpty()) {
+            inventoryService.reserve(order.get("id"), username, quantities);
+        }
+        return order.toString();
+    }
+
     public boolean verifyPayment(String razorpayOrderId, String razorpayPaymentId, String razorpaySignature) {
         try {
             String payload = razorpayOrderId + "|" + razorpayPaymentId;
@@ -0,0 +1,133 @@
+package com.ecomm.service;
+
+import com.ecomm.dto.ProductDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// In-process cache for the catalog read model. Caffeine bounds each cache by estimated bytes and evicts
+// with W-TinyLFU. Every product write invalidates that product plus the derived catalog listing.
+@Component
+public class ProductCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCache.class);
+    private static final Boolean SNAPSHOT_KEY = Boolean.TRUE;
+
+    private final boolean enabled;
+    private final Cache<Long, ProductDTO> products;
+    private final Cache<Boolean, List<ProductDTO>> catalogSnapshot;
+    // Bumped before every invalidation, so a product load that overlapped one is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ProductCache(@Value("${catalog.cache.enabled:true}") boolean enabled,
+                        @Value("${catalog.cache.products.max-bytes:33554432}") long productsMaxBytes,
+                        @Value("${catalog.cache.snapshot.max-bytes:67108864}") long snapshotMaxBytes) {
+        this.enabled = enabled;
+        this.products = Caffeine.newBuilder()
+                .maximumWeight(productsMaxBytes)
+                .weigher((Long id, ProductDTO product) -> estimateBytes(product))
+                .recordStats()
+                .build();
+        this.catalogSnapshot = Caffeine.newBuilder()
+                .maximumWeight(snapshotMaxBytes)
+                .weigher((Boolean key, List<ProductDTO> list) -> estimateBytes(list))
+                .recordStats()
+                .build();
+        logger.info("Product cache {}", enabled ? "enabled" : "disabled");
+    }
+
+    // The loader runs on the caller's thread outside Caffeine's per-key lock, so concurrent misses are left to
+    // the loader to coalesce and can time out (see SingleFlight) instead of blocking in the cache
+    public ProductDTO getProduct(Long id, Function<Long, ProductDTO> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        ProductDTO cached = products.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = invalidations.get();
+        ProductDTO loaded = loader.apply(id);
+        if (loaded != null) {
+            // Checked under the entry's lock, which invalidateAll also takes after bumping the counter
+            products.asMap().compute(id, (key, current) -> invalidations.get() == generation ? loaded : current);
+        }
+        return loaded;
+    }
+
+    public List<ProductDTO> getAllProducts(Supplier<List<ProductDTO>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return catalogSnapshot.get(SNAPSHOT_KEY, key -> List.copyOf(loader.get()));
+    }
+
+    // Any write can change the full listing, but only this product's entry
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate(event.productIds());
+    }
+
+    public void invalidate(Collection<Long> productIds) {
+        invalidations.incrementAndGet();
+        products.invalidateAll(productIds);
+        catalogSnapshot.invalidateAll();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("products", describe(products));
+        stats.put("catalogSnapshot", describe(catalogSnapshot));
+        return stats;
+    }
+
+    private static Map<String, Object> describe(Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("hits", stats.hitCount());
+        description.put("misses", stats.missCount());
+        description.put("hitRate", stats.hitRate());
+        description.put("evictions", stats.evictionCount());
+        description.put("evictedBytes", stats.evictionWeight());
+        description.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000.0);
+        description.put("entries", cache.estimatedSize());
+        cache.policy().eviction().ifPresent(eviction -> {
+            description.put("weightedBytes", eviction.weightedSize().orElse(0));
+            description.put("maxBytes", eviction.getMaximum());
+        });
+        return description;
+    }
+
+    private static int estimateBytes(List<ProductDTO> list) {
+        long total = 16;
+        for (ProductDTO product : list) {
+            total += estimateBytes(product);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, total);
+    }
+
+    // Rough retained size: object headers and primitives plus two bytes per char of each string
+    private static int estimateBytes(ProductDTO product) {
+        return 160 + 2 * (length(product.name()) + length(product.description()) + length(product.brand())
+                + length(product.category()) + length(product.imageName()) + length(product.imageType())
+                + length(product.imageKey()) + length(product.imageUrl()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
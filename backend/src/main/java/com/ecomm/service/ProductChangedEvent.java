@@ -0,0 +1,13 @@
+package com.ecomm.service;
+
+import java.util.Collection;
+import java.util.List;
+
+// Published after product rows are written so read-side copies (cache, search index) can refresh.
+// Listeners run once the surrounding transaction commits, or straight away when there is none.
+public record ProductChangedEvent(Collection<Long> productIds) {
+
+    public static ProductChangedEvent of(Long productId) {
+        return new ProductChangedEvent(List.of(productId));
+    }
+}
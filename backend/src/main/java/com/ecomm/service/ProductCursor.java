@@ -0,0 +1,60 @@
+package com.ecomm.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+// Keyset position in the catalog listing: sort key and id of the last product on a page,
+// encoded as an opaque url-safe token so clients never build cursors themselves.
+public record ProductCursor(ProductSort sort, String lastValue, long lastId) {
+
+    public static ProductCursor after(ProductSort sort, double price, long id) {
+        return new ProductCursor(sort, String.valueOf(price), id);
+    }
+
+    public static ProductCursor after(ProductSort sort, Date releaseDate, long id) {
+        return new ProductCursor(sort, releaseDate == null ? "" : String.valueOf(releaseDate.getTime()), id);
+    }
+
+    public static ProductCursor after(ProductSort sort, long id) {
+        return new ProductCursor(sort, "", id);
+    }
+
+    public double priceValue() {
+        return Double.parseDouble(lastValue);
+    }
+
+    // null when the last row of the previous page had no release date
+    public Date releaseDateValue() {
+        return lastValue.isEmpty() ? null : new Date(Long.parseLong(lastValue));
+    }
+
+    public String encode() {
+        String raw = sort.name() + "|" + lastValue + "|" + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token, ProductSort expectedSort) {
+        ProductCursor cursor;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            cursor = new ProductCursor(ProductSort.valueOf(parts[0]), parts[1], Long.parseLong(parts[2]));
+            // Validate the sort value eagerly so a tampered cursor fails here rather than in the query
+            if (cursor.sort() == ProductSort.PRICE) {
+                cursor.priceValue();
+            } else if (cursor.sort() == ProductSort.RELEASE_DATE) {
+                cursor.releaseDateValue();
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        if (cursor.sort() != expectedSort) {
+            throw new IllegalArgumentException("Cursor was issued for sort '" + cursor.sort().getParam() + "'");
+        }
+        return cursor;
+    }
+}
@@ -0,0 +1,370 @@
+package com.ecomm.service;
+
+import com.ecomm.dto.BrowsePage;
+import com.ecomm.dto.ProductDTO;
+import com.ecomm.repo.ProductRepo;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Faceted browsing over category, brand, price and availability. Each facet value owns a compressed bitmap
+// of document ids, so a filter is a few bitmap ANDs/ORs and a facet count is an AND cardinality. Counts are
+// disjunctive: a facet is counted under every selection except its own, so picking one brand still shows
+// how many products the other brands would add.
+@Component
+public class ProductFacetIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    // Upper bounds of the price buckets; the last bucket is open ended
+    private final double[] priceEdges;
+    private final String[] priceLabels;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Document id -> product, null for a free slot; ids of deleted products are reused
+    private final List<ProductDTO> documents = new ArrayList<>();
+    private final Map<Long, Integer> documentByProduct = new HashMap<>();
+    private final Deque<Integer> freeDocuments = new ArrayDeque<>();
+    private final RoaringBitmap live = new RoaringBitmap();
+    private final RoaringBitmap inStock = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> byCategory = new HashMap<>();
+    private final Map<String, RoaringBitmap> byBrand = new HashMap<>();
+    private final RoaringBitmap[] byPriceBucket;
+    private volatile boolean ready;
+    // Guarded by lock: set while build() reads its snapshot, with the products changed meanwhile
+    private boolean building;
+    private final Set<Long> changedDuringBuild = new HashSet<>();
+
+    public ProductFacetIndex(@Value("${catalog.facets.price-buckets:500,1000,5000,10000,50000}") double[] priceEdges) {
+        this.priceEdges = priceEdges.clone();
+        Arrays.sort(this.priceEdges);
+        this.priceLabels = new String[this.priceEdges.length + 1];
+        this.byPriceBucket = new RoaringBitmap[this.priceEdges.length + 1];
+        double lower = 0;
+        for (int bucket = 0; bucket < byPriceBucket.length; bucket++) {
+            byPriceBucket[bucket] = new RoaringBitmap();
+            priceLabels[bucket] = bucket < this.priceEdges.length
+                    ? formatPrice(lower) + "-" + formatPrice(this.priceEdges[bucket])
+                    : formatPrice(lower) + "+";
+            lower = bucket < this.priceEdges.length ? this.priceEdges[bucket] : lower;
+        }
+    }
+
+    // Changes that commit while the snapshot is being read are buffered and replayed once it is indexed, since
+    // the snapshot may or may not include them
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        lock.writeLock().lock();
+        try {
+            building = true;
+            changedDuringBuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<ProductDTO> products = null;
+        Set<Long> replay;
+        try {
+            products = productRepo.findAllDtos();
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (products != null) {
+                    documents.clear();
+                    documentByProduct.clear();
+                    freeDocuments.clear();
+                    live.clear();
+                    inStock.clear();
+                    byCategory.clear();
+                    byBrand.clear();
+                    for (RoaringBitmap bucket : byPriceBucket) {
+                        bucket.clear();
+                    }
+                    for (ProductDTO product : products) {
+                        addDocument(product);
+                    }
+                    ready = true;
+                }
+                replay = new HashSet<>(changedDuringBuild);
+                changedDuringBuild.clear();
+                building = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        if (!replay.isEmpty()) {
+            apply(replay);
+        }
+        logger.info("Built facet bitmaps for {} products ({} categories, {} brands)",
+                products.size(), byCategory.size(), byBrand.size());
+    }
+
+    // Also covers stock changes, which move products in and out of the in-stock bitmap
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.productIds().isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                changedDuringBuild.addAll(event.productIds());
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        apply(event.productIds());
+    }
+
+    private void apply(Collection<Long> productIds) {
+        Map<Long, ProductDTO> current = productRepo.findDtosByIdIn(productIds).stream()
+                .collect(Collectors.toMap(ProductDTO::id, Function.identity()));
+        lock.writeLock().lock();
+        try {
+            for (Long productId : productIds) {
+                removeDocument(productId);
+                ProductDTO product = current.get(productId);
+                if (product != null) {
+                    addDocument(product);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public BrowsePage<ProductDTO> browse(ProductFilter filter, ProductSort sort, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            // null means the facet is not filtered
+            RoaringBitmap categoryMatch = union(byCategory, filter.categories());
+            RoaringBitmap brandMatch = union(byBrand, filter.brands());
+            RoaringBitmap priceMatch = priceRange(filter.minPrice(), filter.maxPrice());
+            RoaringBitmap stockMatch = filter.inStockOnly() ? inStock : null;
+
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            facets.put("category", countValues(byCategory, and(brandMatch, priceMatch, stockMatch)));
+            facets.put("brand", countValues(byBrand, and(categoryMatch, priceMatch, stockMatch)));
+            RoaringBitmap priceBase = and(categoryMatch, brandMatch, stockMatch);
+            Map<String, Integer> priceCounts = new LinkedHashMap<>();
+            for (int bucket = 0; bucket < byPriceBucket.length; bucket++) {
+                priceCounts.put(priceLabels[bucket], RoaringBitmap.andCardinality(priceBase, byPriceBucket[bucket]));
+            }
+            facets.put("price", priceCounts);
+            RoaringBitmap availabilityBase = and(categoryMatch, brandMatch, priceMatch);
+            int inStockCount = RoaringBitmap.andCardinality(availabilityBase, inStock);
+            Map<String, Integer> availabilityCounts = new LinkedHashMap<>();
+            availabilityCounts.put("inStock", inStockCount);
+            availabilityCounts.put("outOfStock", availabilityBase.getCardinality() - inStockCount);
+            facets.put("availability", availabilityCounts);
+
+            RoaringBitmap matches = and(categoryMatch, brandMatch, priceMatch, stockMatch);
+            List<ProductDTO> page = page(matches, sort, offset, limit);
+            return new BrowsePage<>(page, matches.getCardinality(), offset, limit, facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Keeps only the first offset + limit products in sort order instead of sorting every match
+    private List<ProductDTO> page(RoaringBitmap matches, ProductSort sort, int offset, int limit) {
+        int depth = offset + limit;
+        if (offset >= matches.getCardinality() || depth <= 0) {
+            return List.of();
+        }
+        Comparator<ProductDTO> order = resultOrder(sort);
+        PriorityQueue<ProductDTO> top = new PriorityQueue<>(depth + 1, order.reversed());
+        IntIterator docs = matches.getIntIterator();
+        while (docs.hasNext()) {
+            ProductDTO product = documents.get(docs.next());
+            if (top.size() < depth) {
+                top.add(product);
+            } else if (order.compare(product, top.peek()) < 0) {
+                top.poll();
+                top.add(product);
+            }
+        }
+        List<ProductDTO> ranked = new ArrayList<>(top);
+        ranked.sort(order);
+        return ranked.subList(offset, ranked.size());
+    }
+
+    private static Comparator<ProductDTO> resultOrder(ProductSort sort) {
+        Comparator<ProductDTO> byId = Comparator.comparing(ProductDTO::id);
+        return switch (sort) {
+            case ID -> byId;
+            case PRICE -> Comparator.comparingDouble(ProductDTO::price).thenComparing(byId);
+            case RELEASE_DATE -> Comparator.comparing(ProductDTO::releaseDate,
+                    Comparator.nullsLast(Comparator.<Date>reverseOrder())).thenComparing(byId);
+        };
+    }
+
+    private RoaringBitmap and(RoaringBitmap... filters) {
+        RoaringBitmap result = live.clone();
+        for (RoaringBitmap filter : filters) {
+            if (filter != null) {
+                result.and(filter);
+            }
+        }
+        return result;
+    }
+
+    private static RoaringBitmap union(Map<String, RoaringBitmap> facet, Set<String> values) {
+        if (values.isEmpty()) {
+            return null;
+        }
+        RoaringBitmap result = new RoaringBitmap();
+        for (String value : values) {
+            RoaringBitmap bitmap = facet.get(value.trim());
+            if (bitmap != null) {
+                result.or(bitmap);
+            }
+        }
+        return result;
+    }
+
+    // Buckets inside the range are taken whole; only the buckets the bounds fall in are checked per product
+    private RoaringBitmap priceRange(Double minPrice, Double maxPrice) {
+        if (minPrice == null && maxPrice == null) {
+            return null;
+        }
+        double min = minPrice == null ? Double.NEGATIVE_INFINITY : minPrice;
+        double max = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+        RoaringBitmap result = new RoaringBitmap();
+        for (int bucket = 0; bucket < byPriceBucket.length; bucket++) {
+            double lower = bucket == 0 ? Double.NEGATIVE_INFINITY : priceEdges[bucket - 1];
+            double upper = bucket < priceEdges.length ? priceEdges[bucket] : Double.POSITIVE_INFINITY;
+            if (upper <= min || lower > max) {
+                continue;
+            }
+            if (lower >= min && upper <= max) {
+                result.or(byPriceBucket[bucket]);
+                continue;
+            }
+            IntIterator docs = byPriceBucket[bucket].getIntIterator();
+            while (docs.hasNext()) {
+                int doc = docs.next();
+                double price = documents.get(doc).price();
+                if (price >= min && price <= max) {
+                    result.add(doc);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Values with no matches under the other filters are left out; the rest are ordered by count
+    private static Map<String, Integer> countValues(Map<String, RoaringBitmap> facet, RoaringBitmap base) {
+        List<Map.Entry<String, Integer>> counts = new ArrayList<>();
+        facet.forEach((value, bitmap) -> {
+            int count = RoaringBitmap.andCardinality(base, bitmap);
+            if (count > 0) {
+                counts.add(Map.entry(value, count));
+            }
+        });
+        counts.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Integer> ordered = new LinkedHashMap<>();
+        counts.forEach(entry -> ordered.put(entry.getKey(), entry.getValue()));
+        return ordered;
+    }
+
+    private void addDocument(ProductDTO product) {
+        Integer free = freeDocuments.poll();
+        int doc = free != null ? free : documents.size();
+        if (free != null) {
+            documents.set(doc, product);
+        } else {
+            documents.add(product);
+        }
+        documentByProduct.put(product.id(), doc);
+        live.add(doc);
+        if (isInStock(product)) {
+            inStock.add(doc);
+        }
+        addValue(byCategory, product.category(), doc);
+        addValue(byBrand, product.brand(), doc);
+        byPriceBucket[priceBucket(product.price())].add(doc);
+    }
+
+    private void removeDocument(Long productId) {
+        Integer doc = documentByProduct.remove(productId);
+        if (doc == null) {
+            return;
+        }
+        ProductDTO product = documents.get(doc);
+        live.remove(doc);
+        inStock.remove(doc);
+        removeValue(byCategory, product.category(), doc);
+        removeValue(byBrand, product.brand(), doc);
+        byPriceBucket[priceBucket(product.price())].remove(doc);
+        documents.set(doc, null);
+        freeDocuments.push(doc);
+    }
+
+    private static void addValue(Map<String, RoaringBitmap> facet, String value, int doc) {
+        if (value != null && !value.isBlank()) {
+            facet.computeIfAbsent(value.trim(), key -> new RoaringBitmap()).add(doc);
+        }
+    }
+
+    private static void removeValue(Map<String, RoaringBitmap> facet, String value, int doc) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        RoaringBitmap bitmap = facet.get(value.trim());
+        if (bitmap != null) {
+            bitmap.remove(doc);
+            if (bitmap.isEmpty()) {
+                facet.remove(value.trim());
+            }
+        }
+    }
+
+    private int priceBucket(double price) {
+        int bucket = 0;
+        while (bucket < priceEdges.length && price >= priceEdges[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static boolean isInStock(ProductDTO product) {
+        return product.productAvailable() && product.stockQuantity() > 0;
+    }
+
+    private static String formatPrice(double price) {
+        return price == Math.rint(price) ? String.valueOf((long) price) : String.valueOf(price);
+    }
+}
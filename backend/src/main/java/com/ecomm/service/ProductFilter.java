@@ -0,0 +1,16 @@
+package com.ecomm.service;
+
+import java.util.Set;
+
+// Facet selections for catalog browsing; empty sets and null bounds leave that facet unfiltered
+public record ProductFilter(Set<String> categories, Set<String> brands, Double minPrice, Double maxPrice,
+                            boolean inStockOnly) {
+
+    public ProductFilter {
+        categories = categories == null ? Set.of() : Set.copyOf(categories);
+        brands = brands == null ? Set.of() : Set.copyOf(brands);
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new IllegalArgumentException("minPrice must not exceed maxPrice");
+        }
+    }
+}
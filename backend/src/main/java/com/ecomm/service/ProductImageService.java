@@ -0,0 +1,143 @@
+package com.ecomm.service;
+
+import com.ecomm.repo.OrderRepository;
+import com.ecomm.repo.ProductRepo;
+import com.ecomm.storage.ImageStore;
+import com.ecomm.storage.ImageVariant;
+import com.ecomm.storage.StoredImage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+public class ProductImageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImageService.class);
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${catalog.single-flight.timeout:PT5S}")
+    private Duration loadTimeout;
+
+    private SingleFlight<Long, byte[]> legacyImageLoads;
+
+    @PostConstruct
+    void initLoadCoalescing() {
+        legacyImageLoads = new SingleFlight<>("legacy image", loadTimeout);
+    }
+
+    // Multipart parts are already spooled to disk by the servlet container; stream from there
+    public String storeImage(MultipartFile image) throws IOException {
+        try (InputStream in = image.getInputStream()) {
+            return imageStore.put(in);
+        }
+    }
+
+    // Called when a new image replaces one still held in the product row
+    public void clearLegacyImage(Long productId) {
+        productRepo.clearLegacyImage(productId);
+    }
+
+    public Optional<StoredImage> findStoredImage(String imageKey) {
+        return imageKey == null ? Optional.empty() : imageStore.find(imageKey);
+    }
+
+    public Optional<StoredImage> findVariant(String imageKey, ImageVariant variant) {
+        return imageDerivativeService.findVariant(imageKey, variant);
+    }
+
+    public String getVariantContentType() {
+        return imageDerivativeService.getContentType();
+    }
+
+    // Non-blocking: variant generation runs on the derivative worker pool
+    public void generateVariantsAsync(String imageKey) {
+        imageDerivativeService.scheduleVariants(imageKey);
+    }
+
+    // Products saved before the image store existed still keep their bytes in the product table
+    public byte[] getLegacyImageData(Long productId) {
+        return legacyImageLoads.load(productId, productRepo::findImageDataById);
+    }
+
+    public Map<String, Object> getLegacyImageLoadStats() {
+        return legacyImageLoads.stats();
+    }
+
+    // Served by content key without a product row to say what it is, so the type comes from the file header
+    public String contentTypeOf(StoredImage image) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(image.path()))) {
+            String type = URLConnection.guessContentTypeFromStream(in);
+            return type != null ? type : "application/octet-stream";
+        } catch (IOException e) {
+            return "application/octet-stream";
+        }
+    }
+
+    // Content keys can be shared, so a file is only removed once no product and no order line references it
+    public void releaseImage(String imageKey) {
+        if (imageKey == null || productRepo.countByImageKey(imageKey) > 0
+                || orderRepository.countItemsByImageKey(imageKey) > 0) {
+            return;
+        }
+        imageDerivativeService.deleteVariants(imageKey);
+        try {
+            imageStore.delete(imageKey);
+        } catch (IOException e) {
+            logger.warn("Failed to delete unreferenced image {}: {}", imageKey, e.getMessage());
+        }
+    }
+
+    // Moves blobs out of the product table one row at a time, so only a single image is ever in memory
+    public int migrateLegacyImages() {
+        List<Long> productIds = productRepo.findIdsWithLegacyImage();
+        logger.info("Migrating {} product images from the database to the image store", productIds.size());
+
+        int migrated = 0;
+        for (Long productId : productIds) {
+            try {
+                byte[] data = productRepo.findImageDataById(productId);
+                if (data == null) {
+                    continue;
+                }
+                String key = imageStore.put(data);
+                productRepo.moveImageToStore(productId, key, Instant.now());
+                eventPublisher.publishEvent(ProductChangedEvent.of(productId));
+                migrated++;
+            } catch (Exception e) {
+                logger.error("Failed to migrate image for product ID {}", productId, e);
+            }
+        }
+        logger.info("Migrated {} of {} product images", migrated, productIds.size());
+        return migrated;
+    }
+}
@@ -0,0 +1,581 @@
+package com.ecomm.service;
+
+import com.ecomm.dto.ProductDTO;
+import com.ecomm.dto.SearchPage;
+import com.ecomm.repo.ProductRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Inverted index over name, brand, category and description. Documents get increasing int ids, so every
+// posting list stays sorted by appending; an update tombstones the old document and appends a new one, and
+// the index is rebuilt once too many tombstones pile up. All query tokens must match; the last one is
+// matched as a prefix because the search box queries while the user is still typing.
+//
+// Matches are ranked with BM25F: per-field term frequencies are length-normalised, weighted by field
+// boost and summed before saturation, so a hit in the name outweighs a passing mention in the description.
+//
+// Fuzzy queries also accept terms within a small edit distance of each token. Candidate terms come from a
+// padded-trigram index over the term dictionary (one bitset of term ids per trigram and per term length)
+// and are verified with a banded Levenshtein check; fuzzy hits score lower than exact ones.
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Field order used for packed term frequencies and per-document lengths
+    private static final int NAME = 0;
+    private static final int BRAND = 1;
+    private static final int CATEGORY = 2;
+    private static final int DESCRIPTION = 3;
+    private static final int FIELDS = 4;
+    private static final int MAX_FIELD_FREQUENCY = 0xFF;
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // Terms considered per fuzzy token, closest first, so short tokens cannot fan out over the dictionary
+    private static final int MAX_FUZZY_EXPANSIONS = 32;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Value("${catalog.search.max-results:1000}")
+    private int maxResults;
+
+    private final float[] fieldBoosts;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    // Term id -> term, plus the trigram and length bitsets over term ids used for fuzzy lookups
+    private final List<String> termsById = new ArrayList<>();
+    private final Map<String, BitSet> termsByTrigram = new HashMap<>();
+    private final List<BitSet> termsByLength = new ArrayList<>();
+    // Document id -> product, null once the document is superseded or deleted
+    private final List<ProductDTO> documents = new ArrayList<>();
+    private final Map<Long, Integer> documentByProduct = new HashMap<>();
+    // Token count of each field, FIELDS entries per document id
+    private int[] fieldLengths = new int[FIELDS * 64];
+    private final long[] liveFieldLengthTotals = new long[FIELDS];
+    private int deletedDocuments;
+    private volatile boolean ready;
+    // Guarded by lock: set while build() reads its snapshot, with the products changed meanwhile
+    private boolean building;
+    private final Set<Long> changedDuringBuild = new HashSet<>();
+
+    public ProductSearchIndex(@Value("${catalog.search.boost.name:3.0}") float nameBoost,
+                              @Value("${catalog.search.boost.brand:2.0}") float brandBoost,
+                              @Value("${catalog.search.boost.category:1.5}") float categoryBoost,
+                              @Value("${catalog.search.boost.description:1.0}") float descriptionBoost) {
+        this.fieldBoosts = new float[FIELDS];
+        fieldBoosts[NAME] = nameBoost;
+        fieldBoosts[BRAND] = brandBoost;
+        fieldBoosts[CATEGORY] = categoryBoost;
+        fieldBoosts[DESCRIPTION] = descriptionBoost;
+    }
+
+    // Changes that commit while the snapshot is being read are buffered and replayed once it is indexed, since
+    // the snapshot may or may not include them
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            building = true;
+            changedDuringBuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<ProductDTO> products = null;
+        Set<Long> replay;
+        try {
+            products = productRepo.findAllDtos();
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (products != null) {
+                    reset();
+                    for (ProductDTO product : products) {
+                        addDocument(product);
+                    }
+                    ready = true;
+                }
+                replay = new HashSet<>(changedDuringBuild);
+                changedDuringBuild.clear();
+                building = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        if (!replay.isEmpty()) {
+            apply(replay);
+        }
+        logger.info("Indexed {} products ({} terms) in {} ms",
+                products.size(), terms.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.productIds().isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                changedDuringBuild.addAll(event.productIds());
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        apply(event.productIds());
+    }
+
+    // Re-reads the products and replaces their documents; a product that no longer exists is dropped
+    private void apply(Collection<Long> productIds) {
+        Map<Long, ProductDTO> current = productRepo.findDtosByIdIn(productIds).stream()
+                .collect(Collectors.toMap(ProductDTO::id, Function.identity()));
+        lock.writeLock().lock();
+        try {
+            for (Long productId : productIds) {
+                removeDocument(productId);
+                ProductDTO product = current.get(productId);
+                if (product != null) {
+                    addDocument(product);
+                }
+            }
+            if (deletedDocuments > 1024 && deletedDocuments > documents.size() / 4) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public SearchPage<ProductDTO> search(String query, SearchSort sort, boolean fuzzy, int offset, int limit) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        // Only the first max-results hits are reachable by paging
+        int depth = Math.min(offset + limit, maxResults);
+        if (tokens.isEmpty() || offset >= depth) {
+            return new SearchPage<>(List.of(), 0, offset, limit);
+        }
+
+        lock.readLock().lock();
+        try {
+            // Each token expands to the terms it matches: one for an exact token, possibly many for the prefix
+            // or in fuzzy mode
+            List<List<TermMatch>> expansions = new ArrayList<>(tokens.size());
+            List<Postings> tokenDocs = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                List<TermMatch> expansion = expand(tokens.get(i), i == tokens.size() - 1, fuzzy);
+                if (expansion.isEmpty()) {
+                    return new SearchPage<>(List.of(), 0, offset, limit);
+                }
+                expansions.add(expansion);
+                tokenDocs.add(union(expansion.stream().map(TermMatch::postings).toList()));
+            }
+
+            // Intersect starting from the rarest token so the working set only shrinks
+            tokenDocs.sort(Comparator.comparingInt(postings -> postings.size));
+            Postings matches = tokenDocs.get(0);
+            for (int i = 1; i < tokenDocs.size() && matches.size > 0; i++) {
+                matches = intersect(matches, tokenDocs.get(i));
+            }
+
+            float[] scores = sort == SearchSort.RELEVANCE ? score(matches, expansions) : null;
+            Comparator<Integer> order = resultOrder(sort, matches, scores);
+
+            // Bounded min-heap on the result order: its head is the weakest of the best hits seen so far
+            PriorityQueue<Integer> top = new PriorityQueue<>(depth + 1, order.reversed());
+            int total = 0;
+            for (int i = 0; i < matches.size; i++) {
+                if (documents.get(matches.docs[i]) == null) {
+                    continue;
+                }
+                total++;
+                if (top.size() < depth) {
+                    top.add(i);
+                } else if (order.compare(i, top.peek()) < 0) {
+                    top.poll();
+                    top.add(i);
+                }
+            }
+
+            Integer[] ranked = top.toArray(new Integer[0]);
+            Arrays.sort(ranked, order);
+            List<ProductDTO> page = new ArrayList<>(limit);
+            for (int i = offset; i < ranked.length; i++) {
+                page.add(documents.get(matches.docs[ranked[i]]));
+            }
+            return new SearchPage<>(page, total, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private List<TermMatch> expand(String token, boolean prefix, boolean fuzzy) {
+        Map<String, TermMatch> expansion = new LinkedHashMap<>();
+        if (prefix) {
+            terms.subMap(token, true, token + Character.MAX_VALUE, false)
+                    .forEach((term, postings) -> expansion.put(term, new TermMatch(postings, 1f)));
+        } else {
+            Postings postings = terms.get(token);
+            if (postings != null) {
+                expansion.put(token, new TermMatch(postings, 1f));
+            }
+        }
+        if (fuzzy) {
+            int maxEdits = maxEdits(token);
+            for (Map.Entry<String, Integer> near : fuzzyTerms(token, maxEdits).entrySet()) {
+                expansion.putIfAbsent(near.getKey(),
+                        new TermMatch(terms.get(near.getKey()), 1f / (1 + near.getValue())));
+            }
+        }
+        return new ArrayList<>(expansion.values());
+    }
+
+    // Typo allowance grows with token length; very short tokens must match exactly
+    private static int maxEdits(String token) {
+        if (token.length() <= 2) {
+            return 0;
+        }
+        return token.length() <= 5 ? 1 : 2;
+    }
+
+    // Dictionary terms within maxEdits of the token, mapped to their distance, closest first
+    private Map<String, Integer> fuzzyTerms(String token, int maxEdits) {
+        if (maxEdits == 0) {
+            return Map.of();
+        }
+        // Any term sharing a trigram with the token and of a reachable length is a candidate
+        BitSet candidates = new BitSet(termsById.size());
+        for (String trigram : trigrams(token)) {
+            BitSet withTrigram = termsByTrigram.get(trigram);
+            if (withTrigram != null) {
+                candidates.or(withTrigram);
+            }
+        }
+        BitSet reachableLengths = new BitSet(termsById.size());
+        for (int length = Math.max(1, token.length() - maxEdits);
+             length <= token.length() + maxEdits && length < termsByLength.size(); length++) {
+            reachableLengths.or(termsByLength.get(length));
+        }
+        candidates.and(reachableLengths);
+
+        List<Map.Entry<String, Integer>> verified = new ArrayList<>();
+        for (int termId = candidates.nextSetBit(0); termId >= 0; termId = candidates.nextSetBit(termId + 1)) {
+            String term = termsById.get(termId);
+            int distance = boundedDistance(token, term, maxEdits);
+            if (distance > 0 && distance <= maxEdits) {
+                verified.add(Map.entry(term, distance));
+            }
+        }
+        verified.sort(Map.Entry.<String, Integer>comparingByValue()
+                .thenComparing(entry -> -terms.get(entry.getKey()).size));
+        Map<String, Integer> closest = new LinkedHashMap<>();
+        for (int i = 0; i < verified.size() && i < MAX_FUZZY_EXPANSIONS; i++) {
+            closest.put(verified.get(i).getKey(), verified.get(i).getValue());
+        }
+        return closest;
+    }
+
+    // Levenshtein distance restricted to a diagonal band of width maxEdits; returns maxEdits + 1 as soon as
+    // every cell of a row exceeds the bound
+    static int boundedDistance(String source, String target, int maxEdits) {
+        if (Math.abs(source.length() - target.length()) > maxEdits) {
+            return maxEdits + 1;
+        }
+        int outOfBand = maxEdits + 1;
+        int[] previous = new int[target.length() + 1];
+        int[] current = new int[target.length() + 1];
+        for (int j = 0; j <= target.length(); j++) {
+            previous[j] = j <= maxEdits ? j : outOfBand;
+        }
+        for (int i = 1; i <= source.length(); i++) {
+            int from = Math.max(1, i - maxEdits);
+            int to = Math.min(target.length(), i + maxEdits);
+            Arrays.fill(current, outOfBand);
+            current[0] = i <= maxEdits ? i : outOfBand;
+            int rowMinimum = current[0];
+            for (int j = from; j <= to; j++) {
+                int substitution = previous[j - 1] + (source.charAt(i - 1) == target.charAt(j - 1) ? 0 : 1);
+                int deletion = previous[j] + 1;
+                int insertion = current[j - 1] + 1;
+                current[j] = Math.min(outOfBand, Math.min(substitution, Math.min(deletion, insertion)));
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+            if (rowMinimum > maxEdits) {
+                return outOfBand;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[target.length()];
+    }
+
+    // Padded so that the first and last characters each appear in their own trigrams
+    private static List<String> trigrams(String term) {
+        String padded = "$$" + term + "$";
+        List<String> trigrams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    // Term-at-a-time scoring over the candidate list; a token scores as its best-matching expanded term
+    private float[] score(Postings matches, List<List<TermMatch>> expansions) {
+        int liveDocuments = documents.size() - deletedDocuments;
+        float[] averageLengths = new float[FIELDS];
+        for (int field = 0; field < FIELDS; field++) {
+            averageLengths[field] = liveDocuments == 0
+                    ? 1f
+                    : Math.max(1f, (float) liveFieldLengthTotals[field] / liveDocuments);
+        }
+
+        float[] scores = new float[matches.size];
+        float[] tokenScores = new float[matches.size];
+        for (List<TermMatch> expansion : expansions) {
+            Arrays.fill(tokenScores, 0f);
+            for (TermMatch match : expansion) {
+                Postings postings = match.postings();
+                // Document frequency still counts tombstoned entries until the next compaction
+                float idf = (float) Math.log(1 + (liveDocuments - postings.size + 0.5) / (postings.size + 0.5));
+                int i = 0;
+                int j = 0;
+                while (i < matches.size && j < postings.size) {
+                    if (matches.docs[i] < postings.docs[j]) {
+                        i++;
+                    } else if (matches.docs[i] > postings.docs[j]) {
+                        j++;
+                    } else {
+                        float termScore = match.weight() * idf
+                                * saturate(postings.frequencies[j], matches.docs[i], averageLengths);
+                        tokenScores[i] = Math.max(tokenScores[i], termScore);
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] += tokenScores[i];
+            }
+        }
+        return scores;
+    }
+
+    private float saturate(int packedFrequencies, int docId, float[] averageLengths) {
+        float weighted = 0f;
+        for (int field = 0; field < FIELDS; field++) {
+            int frequency = (packedFrequencies >>> (8 * field)) & MAX_FIELD_FREQUENCY;
+            if (frequency == 0) {
+                continue;
+            }
+            float norm = 1 - B + B * fieldLengths[docId * FIELDS + field] / averageLengths[field];
+            weighted += fieldBoosts[field] * frequency / norm;
+        }
+        return weighted * (K1 + 1) / (K1 + weighted);
+    }
+
+    // Order over positions in the match list; ties fall back to product id so paging is stable
+    private Comparator<Integer> resultOrder(SearchSort sort, Postings matches, float[] scores) {
+        Comparator<Integer> byId = Comparator.comparingLong(i -> documents.get(matches.docs[i]).id());
+        return switch (sort) {
+            case RELEVANCE -> Comparator.<Integer>comparingDouble(i -> -scores[i]).thenComparing(byId);
+            case PRICE -> Comparator.<Integer>comparingDouble(i -> documents.get(matches.docs[i]).price())
+                    .thenComparing(byId);
+            case NEWEST -> Comparator.<Integer, Date>comparing(i -> documents.get(matches.docs[i]).releaseDate(),
+                    Comparator.nullsLast(Comparator.reverseOrder())).thenComparing(byId);
+        };
+    }
+
+    private static Postings union(Collection<Postings> lists) {
+        if (lists.size() == 1) {
+            return lists.iterator().next();
+        }
+        int total = 0;
+        for (Postings postings : lists) {
+            total += postings.size;
+        }
+        int[] union = new int[total];
+        int position = 0;
+        for (Postings postings : lists) {
+            System.arraycopy(postings.docs, 0, union, position, postings.size);
+            position += postings.size;
+        }
+        Arrays.sort(union);
+        int distinct = 0;
+        for (int i = 0; i < union.length; i++) {
+            if (i == 0 || union[i] != union[i - 1]) {
+                union[distinct++] = union[i];
+            }
+        }
+        return new Postings(union, null, distinct);
+    }
+
+    // Linear merge of two sorted posting lists
+    private static Postings intersect(Postings left, Postings right) {
+        Postings result = new Postings(new int[Math.min(left.size, right.size)], null, 0);
+        int i = 0;
+        int j = 0;
+        while (i < left.size && j < right.size) {
+            if (left.docs[i] < right.docs[j]) {
+                i++;
+            } else if (left.docs[i] > right.docs[j]) {
+                j++;
+            } else {
+                result.docs[result.size++] = left.docs[i];
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    private void addDocument(ProductDTO product) {
+        int docId = documents.size();
+        documents.add(product);
+        documentByProduct.put(product.id(), docId);
+        if (fieldLengths.length < (docId + 1) * FIELDS) {
+            fieldLengths = Arrays.copyOf(fieldLengths, fieldLengths.length * 2);
+        }
+
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        countField(frequencies, docId, NAME, product.name());
+        countField(frequencies, docId, BRAND, product.brand());
+        countField(frequencies, docId, CATEGORY, product.category());
+        countField(frequencies, docId, DESCRIPTION, product.description());
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            terms.computeIfAbsent(entry.getKey(), this::newTerm).add(docId, entry.getValue());
+        }
+    }
+
+    private Postings newTerm(String term) {
+        int termId = termsById.size();
+        termsById.add(term);
+        for (String trigram : trigrams(term)) {
+            termsByTrigram.computeIfAbsent(trigram, key -> new BitSet()).set(termId);
+        }
+        while (termsByLength.size() <= term.length()) {
+            termsByLength.add(new BitSet());
+        }
+        termsByLength.get(term.length()).set(termId);
+        return new Postings(new int[4], new int[4], 0);
+    }
+
+    // Adds this field's term counts into the packed per-term frequencies, one byte per field
+    private void countField(Map<String, Integer> frequencies, int docId, int field, String text) {
+        List<String> tokens = tokenize(text);
+        fieldLengths[docId * FIELDS + field] = tokens.size();
+        liveFieldLengthTotals[field] += tokens.size();
+        int shift = 8 * field;
+        for (String token : tokens) {
+            frequencies.merge(token, 1 << shift, (packed, one) ->
+                    ((packed >>> shift) & MAX_FIELD_FREQUENCY) == MAX_FIELD_FREQUENCY ? packed : packed + one);
+        }
+    }
+
+    // Posting entries of a removed document stay behind and are skipped at query time
+    private void removeDocument(Long productId) {
+        Integer docId = documentByProduct.remove(productId);
+        if (docId != null) {
+            documents.set(docId, null);
+            for (int field = 0; field < FIELDS; field++) {
+                liveFieldLengthTotals[field] -= fieldLengths[docId * FIELDS + field];
+            }
+            deletedDocuments++;
+        }
+    }
+
+    private void compact() {
+        List<ProductDTO> live = documents.stream().filter(product -> product != null).toList();
+        reset();
+        for (ProductDTO product : live) {
+            addDocument(product);
+        }
+        logger.debug("Compacted search index to {} products", live.size());
+    }
+
+    private void reset() {
+        terms.clear();
+        termsById.clear();
+        termsByTrigram.clear();
+        termsByLength.clear();
+        documents.clear();
+        documentByProduct.clear();
+        Arrays.fill(liveFieldLengthTotals, 0);
+        deletedDocuments = 0;
+    }
+
+    // A dictionary term matched by a query token; weight is below 1 for fuzzy matches
+    private record TermMatch(Postings postings, float weight) {
+    }
+
+    // Sorted document ids with packed per-field term frequencies; only the first size entries are in use
+    private static final class Postings {
+        private int[] docs;
+        private int[] frequencies;
+        private int size;
+
+        Postings(int[] docs, int[] frequencies, int size) {
+            this.docs = docs;
+            this.frequencies = frequencies;
+            this.size = size;
+        }
+
+        void add(int docId, int packedFrequencies) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = docId;
+            frequencies[size] = packedFrequencies;
+            size++;
+        }
+    }
+}
@@ -1,19 +1,35 @@
 package com.ecomm.service;
 
+import com.ecomm.dto.BrowsePage;
+import com.ecomm.dto.CursorPage;
+import com.ecomm.dto.DecrementRequest;
+import com.ecomm.dto.ProductDTO;
+import com.ecomm.dto.SearchPage;
+import com.ecomm.dto.SuggestionDTO;
 import com.ecomm.model.Product;
 import com.ecomm.repo.ProductRepo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import reactor.core.publisher.Mono;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 @Service
 public class ProductService {
@@ -26,18 +42,143 @@ public class ProductService {
     @Autowired
     private GeminiService geminiService;
 
-    public List<Product> getAllProducts() {
-        return productRepo.findAll();
+    @Autowired
+    private ProductImageService productImageService;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductSuggester productSuggester;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${catalog.search.default-size:20}")
+    private int defaultSearchSize;
+
+    @Value("${catalog.search.max-size:50}")
+    private int maxSearchSize;
+
+    @Value("${catalog.page.default-size:24}")
+    private int defaultPageSize;
+
+    @Value("${catalog.page.max-size:100}")
+    private int maxPageSize;
+
+    @Value("${catalog.single-flight.timeout:PT5S}")
+    private Duration loadTimeout;
+
+    private SingleFlight<Long, ProductDTO> summaryLoads;
+
+    @PostConstruct
+    void initLoadCoalescing() {
+        summaryLoads = new SingleFlight<>("product summary", loadTimeout);
+    }
+
+    public List<ProductDTO> getAllProducts() {
+        return productCache.getAllProducts(productRepo::findAllDtos);
+    }
+
+    public CursorPage<ProductDTO> getProductPage(String cursorToken, Integer requestedSize, String sortParam) {
+        ProductSort sort = ProductSort.fromParam(sortParam);
+        ProductCursor cursor = (cursorToken == null || cursorToken.isBlank())
+                ? null
+                : ProductCursor.decode(cursorToken, sort);
+        int size = resolvePageSize(requestedSize);
+
+        // Fetch one extra row to learn whether another page exists without a COUNT query
+        Limit limit = Limit.of(size + 1);
+        List<ProductDTO> rows = switch (sort) {
+            case ID -> cursor == null
+                    ? productRepo.findFirstPageById(limit)
+                    : productRepo.findPageAfterId(cursor.lastId(), limit);
+            case PRICE -> cursor == null
+                    ? productRepo.findFirstPageByPrice(limit)
+                    : productRepo.findPageAfterPrice(cursor.priceValue(), cursor.lastId(), limit);
+            case RELEASE_DATE -> releaseDatePage(cursor, limit);
+        };
+
+        boolean hasMore = rows.size() > size;
+        List<ProductDTO> items = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = hasMore ? cursorAfter(sort, items.get(items.size() - 1)).encode() : null;
+        return new CursorPage<>(items, nextCursor, items.size());
+    }
+
+    // Pages through dated products first; a page that runs out of them is topped up with undated ones
+    private List<ProductDTO> releaseDatePage(ProductCursor cursor, Limit limit) {
+        if (cursor != null && cursor.releaseDateValue() == null) {
+            return productRepo.findUndatedPageAfterId(cursor.lastId(), limit);
+        }
+        List<ProductDTO> dated = cursor == null
+                ? productRepo.findFirstPageByReleaseDate(limit)
+                : productRepo.findPageAfterReleaseDate(cursor.releaseDateValue(), cursor.lastId(), limit);
+        if (dated.size() >= limit.max()) {
+            return dated;
+        }
+        List<ProductDTO> rows = new ArrayList<>(dated);
+        rows.addAll(productRepo.findFirstUndatedPage(Limit.of(limit.max() - dated.size())));
+        return rows;
+    }
+
+    private int resolvePageSize(Integer requestedSize) {
+        if (requestedSize == null) {
+            return defaultPageSize;
+        }
+        if (requestedSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return Math.min(requestedSize, maxPageSize);
+    }
+
+    private ProductCursor cursorAfter(ProductSort sort, ProductDTO last) {
+        return switch (sort) {
+            case ID -> ProductCursor.after(sort, last.id());
+            case PRICE -> ProductCursor.after(sort, last.price(), last.id());
+            case RELEASE_DATE -> ProductCursor.after(sort, last.releaseDate(), last.id());
+        };
     }
 
     public Product getProductById(Long id) {
         return productRepo.findById(id).orElseThrow(() -> new RuntimeException("no such product"));
     }
 
+    public Optional<ProductDTO> getProductSummary(Long id) {
+        // Misses are coalesced in front of the cache, so waiters give up after catalog.single-flight.timeout
+        return Optional.ofNullable(productCache.getProduct(id, key ->
+                summaryLoads.load(key, productId -> productRepo.findDtoById(productId).orElse(null))));
+    }
+
+    // The image is optional when updating: without one the product keeps its current image untouched
     public Product addOrUpdateProduct(Product product, MultipartFile image) throws IOException {
-        product.setImageName(image.getOriginalFilename());
-        product.setImageType(image.getContentType());
-        product.setImageData(image.getBytes());
+        ProductDTO existing = product.getId() != null ? productRepo.findDtoById(product.getId()).orElse(null) : null;
+        String previousImageKey = existing != null ? existing.imageKey() : null;
+
+        if (image != null && !image.isEmpty()) {
+            product.setImageName(image.getOriginalFilename());
+            product.setImageType(image.getContentType());
+            product.setImageKey(productImageService.storeImage(image));
+            // Last-Modified for the image endpoint; kept when the same picture is uploaded again
+            product.setImageUpdatedAt(product.getImageKey().equals(previousImageKey) && existing.imageUpdatedAt() != null
+                    ? existing.imageUpdatedAt()
+                    : Instant.now());
+        } else if (existing != null) {
+            product.setImageName(existing.imageName());
+            product.setImageType(existing.imageType());
+            product.setImageKey(existing.imageKey());
+            product.setImageUpdatedAt(existing.imageUpdatedAt());
+        } else {
+            throw new IllegalArgumentException("An image is required for new products");
+        }
 
         // Truncate existing description if it exceeds 1000 characters
         if (product.getDescription() != null && product.getDescription().length() > 1000) {
@@ -58,7 +199,17 @@ public class ProductService {
             product.setDescription(description);
         }
 
-        return productRepo.save(product);
+        Product savedProduct = productRepo.save(product);
+        inventoryService.stockOverwritten(savedProduct.getId());
+        eventPublisher.publishEvent(ProductChangedEvent.of(savedProduct.getId()));
+        if (!Objects.equals(savedProduct.getImageKey(), previousImageKey)) {
+            if (existing != null && previousImageKey == null) {
+                productImageService.clearLegacyImage(savedProduct.getId());
+            }
+            productImageService.releaseImage(previousImageKey);
+            productImageService.generateVariantsAsync(savedProduct.getImageKey());
+        }
+        return savedProduct;
     }
 
     public Mono<String> generateProductDescription(Product product) {
@@ -122,31 +273,93 @@ public class ProductService {
         logger.info("Saving product {} with description (length: {}): {}",
                 product.getName(), product.getDescription().length(), product.getDescription());
 
-        return productRepo.save(product);
+        Product savedProduct = productRepo.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(productId));
+        return savedProduct;
     }
 
     public void decrementStock(Long productId, int quantity) {
-        Product product = productRepo.findById(productId)
-                .orElseThrow(() -> new IllegalArgumentException("Product not found"));
-
-        if (product.getStockQuantity() < quantity) {
-            throw new IllegalArgumentException("Not enough stock available");
+        StockDecrement result = inventoryService.decrement(productId, quantity);
+        switch (result.outcome()) {
+            case NOT_FOUND -> throw new IllegalArgumentException("Product not found");
+            case INSUFFICIENT_STOCK -> throw new IllegalArgumentException("Not enough stock available");
+            case DECREMENTED -> logger.debug("Decremented stock of product {} by {}", productId, quantity);
         }
-
-        product.setStockQuantity(product.getStockQuantity() - quantity);
-        productRepo.save(product);
     }
 
-    public byte[] getProductImage(Long productId) {
-        Product product = getProductById(productId);
-        return (product != null) ? product.getImageData() : null;
+    // All lines in one transaction, all or nothing; InsufficientStockException reports every line on failure
+    public List<StockDecrement> decrementStock(List<DecrementRequest> lines) {
+        if (lines == null || lines.isEmpty()) {
+            throw new IllegalArgumentException("No lines to decrement");
+        }
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (DecrementRequest line : lines) {
+            if (line.getProductId() == null) {
+                throw new IllegalArgumentException("Product id is required");
+            }
+            quantities.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+        }
+        return inventoryService.decrementAll(quantities);
     }
 
     public void deleteProduct(Long productId) {
+        String imageKey = productRepo.findImageKeyById(productId);
         productRepo.delete(getProductById(productId));
+        inventoryService.productDeleted(productId);
+        eventPublisher.publishEvent(ProductChangedEvent.of(productId));
+        productImageService.releaseImage(imageKey);
+    }
+
+    public SearchPage<ProductDTO> searchProducts(String keyword, String sortParam, boolean fuzzy,
+                                                 Integer offset, Integer limit) {
+        SearchSort sort = SearchSort.fromParam(sortParam);
+        int start = offset == null ? 0 : offset;
+        if (start < 0) {
+            throw new IllegalArgumentException("Offset must not be negative");
+        }
+        int size = resolveSearchSize(limit);
+        if (productSearchIndex.isReady()) {
+            return productSearchIndex.search(keyword, sort, fuzzy, start, size);
+        }
+
+        // The index is built once the application is ready; until then fall back to the unranked database scan
+        List<ProductDTO> matches = productRepo.searchProducts(keyword);
+        List<ProductDTO> items = start >= matches.size()
+                ? List.of()
+                : matches.subList(start, Math.min(start + size, matches.size()));
+        return new SearchPage<>(items, matches.size(), start, size);
+    }
+
+    public BrowsePage<ProductDTO> browseProducts(ProductFilter filter, String sortParam, Integer offset, Integer limit) {
+        ProductSort sort = ProductSort.fromParam(sortParam);
+        int start = offset == null ? 0 : offset;
+        if (start < 0) {
+            throw new IllegalArgumentException("Offset must not be negative");
+        }
+        if (!productFacetIndex.isReady()) {
+            throw new IllegalStateException("Catalog facets are still loading");
+        }
+        return productFacetIndex.browse(filter, sort, start, resolvePageSize(limit));
+    }
+
+    public List<SuggestionDTO> suggestProducts(String prefix, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        return productSuggester.suggest(prefix, limit);
+    }
+
+    private int resolveSearchSize(Integer requestedSize) {
+        if (requestedSize == null) {
+            return defaultSearchSize;
+        }
+        if (requestedSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return Math.min(requestedSize, maxSearchSize);
     }
 
-    public List<Product> searchProducts(String keyword) {
-        return productRepo.searchProducts(keyword);
+    public Map<String, Object> getSummaryLoadStats() {
+        return summaryLoads.stats();
     }
 }
@@ -0,0 +1,30 @@
+package com.ecomm.service;
+
+import java.util.Arrays;
+
+public enum ProductSort {
+    ID("id"),
+    PRICE("price"),
+    // Newest first; products without a release date come last
+    RELEASE_DATE("releaseDate");
+
+    private final String param;
+
+    ProductSort(String param) {
+        this.param = param;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    public static ProductSort fromParam(String param) {
+        if (param == null || param.isBlank()) {
+            return ID;
+        }
+        return Arrays.stream(values())
+                .filter(sort -> sort.param.equalsIgnoreCase(param.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported sort: " + param));
+    }
+}
@@ -0,0 +1,331 @@
+package com.ecomm.service;
+
+import com.ecomm.dto.ProductDTO;
+import com.ecomm.dto.SuggestionDTO;
+import com.ecomm.repo.ProductRepo;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Typeahead over product names, brands and categories. Every phrase is keyed by its normalised text
+// starting at each of its first few words, and the keys go into an immutable radix trie in which every
+// node already holds its best completions, so a lookup is one walk down the prefix. Suggestions are
+// numbered in rank order, which makes a node's top list simply the smallest ids found below it.
+// Writes rebuild the trie off to the side and swap it in, so lookups never take a lock.
+@Component
+public class ProductSuggester {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSuggester.class);
+    private static final int MAX_WORD_STARTS = 6;
+    private static final int MAX_KEY_LENGTH = 64;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    private final int maxSuggestions;
+
+    // Builds and rebuilds run one at a time on this thread, which alone touches labelsByProduct
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-suggester");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Products changed since the last refresh; a burst of writes is folded into one rebuild
+    private final Set<Long> changedProducts = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+
+    // The fields suggestions are built from, per product
+    private final Map<Long, Labels> labelsByProduct = new HashMap<>();
+    private volatile Trie trie = Trie.EMPTY;
+
+    public ProductSuggester(@Value("${catalog.suggest.max-results:10}") int maxSuggestions) {
+        this.maxSuggestions = maxSuggestions;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        rebuilder.execute(() -> {
+            try {
+                labelsByProduct.clear();
+                for (ProductDTO product : productRepo.findAllDtos()) {
+                    labelsByProduct.put(product.id(), Labels.of(product));
+                }
+                rebuild();
+            } catch (RuntimeException e) {
+                logger.error("Could not build suggestions", e);
+            }
+        });
+    }
+
+    // Only records the ids, so the writing request never waits for a rebuild
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.productIds().isEmpty()) {
+            return;
+        }
+        changedProducts.addAll(event.productIds());
+        if (refreshQueued.compareAndSet(false, true)) {
+            rebuilder.execute(this::refresh);
+        }
+    }
+
+    // Stock and price changes do not touch the trie; only a changed name, brand or category rebuilds it
+    private void refresh() {
+        refreshQueued.set(false);
+        List<Long> productIds = new ArrayList<>(changedProducts);
+        changedProducts.removeAll(productIds);
+        if (productIds.isEmpty()) {
+            return;
+        }
+        try {
+            Map<Long, ProductDTO> current = productRepo.findDtosByIdIn(productIds).stream()
+                    .collect(Collectors.toMap(ProductDTO::id, Function.identity()));
+            boolean changed = false;
+            for (Long productId : productIds) {
+                ProductDTO product = current.get(productId);
+                Labels labels = product == null ? null : Labels.of(product);
+                Labels previous = labels == null ? labelsByProduct.remove(productId) : labelsByProduct.put(productId, labels);
+                changed |= !Objects.equals(previous, labels);
+            }
+            if (changed) {
+                rebuild();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Could not refresh suggestions for products {}", productIds, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        List<String> tokens = ProductSearchIndex.tokenize(prefix);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        String key = String.join(" ", tokens);
+        // A trailing space means the last word is complete, so only longer phrases should match
+        if (Character.isWhitespace(prefix.charAt(prefix.length() - 1))) {
+            key += " ";
+        }
+        return trie.lookup(key, Math.min(limit, maxSuggestions));
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+
+        // Phrases shared by several products (a brand, a category) become one weighted suggestion
+        Map<String, Candidate> candidates = new LinkedHashMap<>();
+        labelsByProduct.forEach((productId, labels) -> {
+            addCandidate(candidates, labels.name(), "name", productId);
+            addCandidate(candidates, labels.brand(), "brand", productId);
+            addCandidate(candidates, labels.category(), "category", productId);
+        });
+        List<Candidate> ranked = new ArrayList<>(candidates.values());
+        ranked.sort(Comparator.comparingInt((Candidate candidate) -> -candidate.productCount)
+                .thenComparingInt(candidate -> candidate.text.length())
+                .thenComparing(candidate -> candidate.text));
+
+        SuggestionDTO[] suggestions = new SuggestionDTO[ranked.size()];
+        List<Map.Entry<String, Integer>> keys = new ArrayList<>();
+        for (int id = 0; id < ranked.size(); id++) {
+            Candidate candidate = ranked.get(id);
+            suggestions[id] = new SuggestionDTO(candidate.text, candidate.type,
+                    candidate.productCount == 1 && candidate.type.equals("name") ? candidate.productId : null);
+            List<String> tokens = ProductSearchIndex.tokenize(candidate.text);
+            for (int word = 0; word < Math.min(tokens.size(), MAX_WORD_STARTS); word++) {
+                String key = String.join(" ", tokens.subList(word, tokens.size()));
+                keys.add(Map.entry(key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key, id));
+            }
+        }
+        keys.sort(Map.Entry.comparingByKey());
+
+        trie = new Trie(suggestions, keys, maxSuggestions);
+        logger.info("Built suggestion trie: {} suggestions, {} keys in {} ms",
+                suggestions.length, keys.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void addCandidate(Map<String, Candidate> candidates, String text, String type, Long productId) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        String normalized = String.join(" ", ProductSearchIndex.tokenize(text));
+        if (normalized.isEmpty()) {
+            return;
+        }
+        Candidate candidate = candidates.computeIfAbsent(type + ":" + normalized,
+                key -> new Candidate(text.trim(), type, productId));
+        candidate.productCount++;
+    }
+
+    private record Labels(String name, String brand, String category) {
+        static Labels of(ProductDTO product) {
+            return new Labels(product.name(), product.brand(), product.category());
+        }
+    }
+
+    private static final class Candidate {
+        private final String text;
+        private final String type;
+        private final Long productId;
+        private int productCount;
+
+        Candidate(String text, String type, Long productId) {
+            this.text = text;
+            this.type = type;
+            this.productId = productId;
+        }
+    }
+
+    private static final class Trie {
+
+        static final Trie EMPTY = new Trie(new SuggestionDTO[0], List.of(), 0);
+
+        private final SuggestionDTO[] suggestions;
+        private final Node root;
+
+        // keys must be sorted; each maps a normalised key to a suggestion id
+        Trie(SuggestionDTO[] suggestions, List<Map.Entry<String, Integer>> keys, int topSize) {
+            this.suggestions = suggestions;
+            String[] keyText = new String[keys.size()];
+            int[] keyIds = new int[keys.size()];
+            for (int i = 0; i < keys.size(); i++) {
+                keyText[i] = keys.get(i).getKey();
+                keyIds[i] = keys.get(i).getValue();
+            }
+            this.root = build(keyText, keyIds, 0, keyText.length, 0, new char[0], topSize);
+        }
+
+        List<SuggestionDTO> lookup(String prefix, int limit) {
+            Node node = root;
+            int position = 0;
+            while (position < prefix.length()) {
+                node = node.child(prefix.charAt(position));
+                if (node == null) {
+                    return List.of();
+                }
+                // The prefix may end part way along an edge; every key below still matches
+                for (int i = 0; i < node.label.length && position < prefix.length(); i++, position++) {
+                    if (node.label[i] != prefix.charAt(position)) {
+                        return List.of();
+                    }
+                }
+            }
+            List<SuggestionDTO> result = new ArrayList<>(Math.min(limit, node.top.length));
+            for (int i = 0; i < node.top.length && i < limit; i++) {
+                result.add(suggestions[node.top[i]]);
+            }
+            return result;
+        }
+
+        // keys[from, to) share their first depth chars; groups by the next char and compresses single paths
+        private static Node build(String[] keys, int[] ids, int from, int to, int depth, char[] label, int topSize) {
+            int[] top = new int[0];
+            int i = from;
+            while (i < to && keys[i].length() == depth) {
+                top = mergeTop(top, new int[]{ids[i]}, topSize);
+                i++;
+            }
+
+            List<Node> children = new ArrayList<>();
+            while (i < to) {
+                char next = keys[i].charAt(depth);
+                int j = i;
+                while (j < to && keys[j].charAt(depth) == next) {
+                    j++;
+                }
+                int end = commonPrefixEnd(keys[i], keys[j - 1], depth);
+                Node child = build(keys, ids, i, j, end, keys[i].substring(depth, end).toCharArray(), topSize);
+                children.add(child);
+                top = mergeTop(top, child.top, topSize);
+                i = j;
+            }
+            return new Node(label, children.toArray(new Node[0]), top);
+        }
+
+        // Sorted keys: the prefix shared by the first and last key of a range is shared by the whole range
+        private static int commonPrefixEnd(String first, String last, int from) {
+            int end = from;
+            int limit = Math.min(first.length(), last.length());
+            while (end < limit && first.charAt(end) == last.charAt(end)) {
+                end++;
+            }
+            return end;
+        }
+
+        // Both inputs are ascending and distinct; keeps the topSize smallest ids, i.e. the best ranked
+        private static int[] mergeTop(int[] left, int[] right, int topSize) {
+            int[] merged = new int[Math.min(topSize, left.length + right.length)];
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (size < merged.length && (i < left.length || j < right.length)) {
+                int next;
+                if (j >= right.length || (i < left.length && left[i] <= right[j])) {
+                    next = left[i++];
+                    if (j < right.length && right[j] == next) {
+                        j++;
+                    }
+                } else {
+                    next = right[j++];
+                }
+                merged[size++] = next;
+            }
+            return size == merged.length ? merged : Arrays.copyOf(merged, size);
+        }
+    }
+
+    private static final class Node {
+        private final char[] label;
+        // Sorted by the first char of their label
+        private final Node[] children;
+        private final int[] top;
+
+        Node(char[] label, Node[] children, int[] top) {
+            this.label = label;
+            this.children = children;
+            this.top = top;
+        }
+
+        Node child(char next) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char first = children[mid].label[0];
+                if (first < next) {
+                    low = mid + 1;
+                } else if (first > next) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.ecomm.service;
+
+import java.util.Arrays;
+
+public enum SearchSort {
+    RELEVANCE("relevance"),
+    // Cheapest first
+    PRICE("price"),
+    // Most recently released first; products without a release date come last
+    NEWEST("newest");
+
+    private final String param;
+
+    SearchSort(String param) {
+        this.param = param;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    public static SearchSort fromParam(String param) {
+        if (param == null || param.isBlank()) {
+            return RELEVANCE;
+        }
+        return Arrays.stream(values())
+                .filter(sort -> sort.param.equalsIgnoreCase(param.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported sort: " + param));
+    }
+}
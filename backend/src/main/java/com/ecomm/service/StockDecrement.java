@@ -0,0 +1,15 @@
+package com.ecomm.service;
+
+// Outcome of decrementing stock for one order line
+public record StockDecrement(Long productId, int quantity, Outcome outcome) {
+
+    public enum Outcome {
+        DECREMENTED,
+        INSUFFICIENT_STOCK,
+        NOT_FOUND
+    }
+
+    public boolean succeeded() {
+        return outcome == Outcome.DECREMENTED;
+    }
+}
@@ -0,0 +1,221 @@
+package com.ecomm.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Checkout holds: stock taken from the inventory ledger when payment starts, keyed by the Razorpay order id.
+// A hold is either claimed by the order that pays for it or handed back to the ledger when its TTL runs out.
+// Expiry is driven by a timer wheel in memory, so open holds cost no database reads or writes; like the ledger
+// they are per process and a restart simply drops them, since the counters are reloaded from the product rows.
+// Each holder (the signed-in user) keeps at most maxPerHolder open holds: starting another checkout hands the
+// oldest back first, so abandoned checkouts cannot pile up, and no line may hold more than maxQuantityPerLine.
+@Component
+public class StockReservations {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservations.class);
+    private static final int WHEEL_LEVELS = 4;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    private final Duration ttl;
+    private final int maxPerHolder;
+    private final int maxQuantityPerLine;
+    private final ConcurrentHashMap<String, Reservation> reservations = new ConcurrentHashMap<>();
+    // Open holds per holder, oldest first; each deque is only touched inside compute
+    private final ConcurrentHashMap<String, ArrayDeque<Reservation>> byHolder = new ConcurrentHashMap<>();
+    private final TimerWheel<Reservation> expiries;
+    private final LongAdder held = new LongAdder();
+    private final LongAdder claimed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder superseded = new LongAdder();
+
+    public StockReservations(@Value("${inventory.reservations.ttl:PT15M}") Duration ttl,
+                             @Value("${inventory.reservations.tick-ms:1000}") long tickMillis,
+                             @Value("${inventory.reservations.max-per-user:1}") int maxPerHolder,
+                             @Value("${inventory.reservations.max-quantity-per-line:10}") int maxQuantityPerLine) {
+        this.ttl = ttl;
+        this.maxPerHolder = Math.max(1, maxPerHolder);
+        this.maxQuantityPerLine = maxQuantityPerLine;
+        this.expiries = new TimerWheel<>(Duration.ofMillis(tickMillis), WHEEL_LEVELS, System.currentTimeMillis());
+    }
+
+    // Rejects a cart that would hold more than the per-line limit, before any stock is taken
+    public void checkLimits(Map<Long, Integer> quantities) {
+        quantities.forEach((productId, quantity) -> {
+            if (quantity > maxQuantityPerLine) {
+                throw new IllegalArgumentException("At most " + maxQuantityPerLine + " of product " + productId
+                        + " can be held per checkout");
+            }
+        });
+    }
+
+    // Hands the holder's oldest holds back until another one fits. Called before the new cart's stock is
+    // taken, so a user restarting checkout can hold the same items again.
+    public void makeRoom(String holder) {
+        List<Reservation> released = new ArrayList<>();
+        byHolder.computeIfPresent(holder, (key, open) -> {
+            while (open.size() >= maxPerHolder) {
+                released.add(open.removeFirst());
+            }
+            return open.isEmpty() ? null : open;
+        });
+        released.forEach(this::supersede);
+    }
+
+    // The quantities must already be taken from the ledger; false if the id is already holding stock. Holds
+    // over the holder's limit (a checkout started concurrently) are handed back, oldest first.
+    public boolean hold(String reservationId, String holder, Map<Long, Integer> quantities) {
+        Reservation reservation = new Reservation(reservationId, holder, Map.copyOf(quantities),
+                System.currentTimeMillis() + ttl.toMillis());
+        if (!open(reservation, true)) {
+            return false;
+        }
+        held.increment();
+        return true;
+    }
+
+    // Hands the held quantities to the caller, which now owns that stock; empty if there is no open hold or it
+    // belongs to another holder, whose hold is left untouched. Inside a transaction the claim is undone if it rolls back: the hold reopens with its original expiry,
+    // so a group commit batch that is re-run after another order failed finds it again.
+    public Map<Long, Integer> claim(String reservationId, String holder) {
+        Reservation reservation = reservations.get(reservationId);
+        if (reservation == null) {
+            return Map.of();
+        }
+        if (!reservation.holder.equals(holder)) {
+            logger.warn("Ignoring stock hold {} claimed by {}, it belongs to another user", reservationId, holder);
+            return Map.of();
+        }
+        if (!reservations.remove(reservationId, reservation)) {
+            // Expired or superseded meanwhile
+            return Map.of();
+        }
+        TimerWheel.Timeout<Reservation> timeout = reservation.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        forget(reservation);
+        claimed.increment();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        reopen(reservation);
+                    }
+                }
+            });
+        }
+        return reservation.quantities;
+    }
+
+    private void reopen(Reservation claimedReservation) {
+        Reservation reservation = new Reservation(claimedReservation.id, claimedReservation.holder,
+                claimedReservation.quantities, claimedReservation.deadlineMillis);
+        // A rolled back claim is not a new checkout, so it does not count against the holder's limit
+        if (!open(reservation, false)) {
+            // The id is holding stock again already; the claimed quantities have nowhere to go but back
+            reservation.quantities.forEach(inventoryLedger::giveBack);
+            return;
+        }
+        claimed.decrement();
+    }
+
+    // Registers the hold and its expiry; with enforceLimit, holds over the holder's limit are handed back,
+    // oldest first
+    private boolean open(Reservation reservation, boolean enforceLimit) {
+        if (reservations.putIfAbsent(reservation.id, reservation) != null) {
+            return false;
+        }
+        reservation.timeout = expiries.schedule(reservation, reservation.deadlineMillis);
+        String holder = reservation.holder;
+        List<Reservation> released = new ArrayList<>();
+        byHolder.compute(holder, (key, open) -> {
+            ArrayDeque<Reservation> holds = open == null ? new ArrayDeque<>() : open;
+            holds.addLast(reservation);
+            while (enforceLimit && holds.size() > maxPerHolder) {
+                released.add(holds.removeFirst());
+            }
+            return holds;
+        });
+        released.forEach(this::supersede);
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.reservations.tick-ms:1000}")
+    public void expire() {
+        expiries.advance(System.currentTimeMillis(), reservation -> {
+            // A hold claimed while its timer was firing belongs to the order
+            if (reservations.remove(reservation.id, reservation)) {
+                forget(reservation);
+                reservation.quantities.forEach(inventoryLedger::giveBack);
+                expired.increment();
+                logger.debug("Released expired stock hold {}", reservation.id);
+            }
+        });
+    }
+
+    // A hold replaced by a newer checkout of the same holder; one claimed or expired meanwhile is left alone
+    private void supersede(Reservation reservation) {
+        if (!reservations.remove(reservation.id, reservation)) {
+            return;
+        }
+        TimerWheel.Timeout<Reservation> timeout = reservation.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        reservation.quantities.forEach(inventoryLedger::giveBack);
+        superseded.increment();
+        logger.debug("Released stock hold {} superseded by a newer checkout", reservation.id);
+    }
+
+    private void forget(Reservation reservation) {
+        byHolder.computeIfPresent(reservation.holder, (key, open) -> {
+            open.remove(reservation);
+            return open.isEmpty() ? null : open;
+        });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("open", reservations.size());
+        stats.put("scheduledExpiries", expiries.size());
+        stats.put("held", held.sum());
+        stats.put("claimed", claimed.sum());
+        stats.put("expired", expired.sum());
+        stats.put("superseded", superseded.sum());
+        stats.put("ttlSeconds", ttl.toSeconds());
+        return stats;
+    }
+
+    private static final class Reservation {
+        private final String id;
+        private final String holder;
+        private final Map<Long, Integer> quantities;
+        private final long deadlineMillis;
+        private volatile TimerWheel.Timeout<Reservation> timeout;
+
+        Reservation(String id, String holder, Map<Long, Integer> quantities, long deadlineMillis) {
+            this.id = id;
+            this.holder = holder;
+            this.quantities = quantities;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.ecomm.service;
+
+import com.ecomm.dto.StockLevel;
+import com.ecomm.repo.ProductRepo;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Pushes live stock levels to SSE subscribers. Changes are collected as product ids (ledger moves and committed
+// product writes) and published on a fixed interval, so a burst of sales becomes one reading per product.
+// Each subscriber keeps only the latest unsent level per product and is drained by a small shared pool, at
+// most one task per subscriber at a time, so a slow client gets coalesced updates and never holds a thread
+// while it is idle. Servlet writes block, so a client that stops reading would keep its sender stuck: a send
+// still running after writeTimeout drops the subscriber, interrupts the sender and lends the pool a
+// replacement thread until the stuck write returns, so the other subscribers keep both their senders.
+@Component
+public class StockStream {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockStream.class);
+    // Replacement sender handoff between a stall and the drain it interrupted; whichever comes second returns it
+    private static final int NO_LOAN = 0;
+    private static final int LOANED = 1;
+    private static final int DRAIN_FINISHED = 2;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    private final long timeoutMillis;
+    private final int maxSubscribers;
+    private final int maxProductsPerSubscriber;
+    private final long writeTimeoutNanos;
+    private final int senderCount;
+    private final ThreadPoolExecutor senders;
+    // Replacement threads lent to the pool for sends that stalled and have not returned yet
+    private int replacements;
+    // Subscribers with a send in progress, for the stall check
+    private final Set<Subscriber> sending = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<Long, Set<Subscriber>> subscribersByProduct = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    // Products written through the database, collected after their transaction commits
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder stalled = new LongAdder();
+
+    public StockStream(@Value("${stock-stream.timeout-ms:1800000}") long timeoutMillis,
+                       @Value("${stock-stream.max-subscribers:10000}") int maxSubscribers,
+                       @Value("${stock-stream.max-products-per-subscriber:100}") int maxProductsPerSubscriber,
+                       @Value("${stock-stream.senders:2}") int senders,
+                       @Value("${stock-stream.write-timeout:PT10S}") Duration writeTimeout) {
+        this.timeoutMillis = timeoutMillis;
+        this.maxSubscribers = maxSubscribers;
+        this.maxProductsPerSubscriber = maxProductsPerSubscriber;
+        this.writeTimeoutNanos = writeTimeout.toNanos();
+        this.senderCount = senders;
+        AtomicInteger threadCount = new AtomicInteger();
+        // Unbounded queue, but each subscriber has at most one task queued, so it is bounded by maxSubscribers
+        this.senders = new ThreadPoolExecutor(senders, senders, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "stock-stream-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    // Starts with the current level of every requested product, then sends only changes
+    public SseEmitter subscribe(Collection<Long> productIds) {
+        Set<Long> ids = new LinkedHashSet<>(productIds);
+        if (ids.isEmpty() || ids.size() > maxProductsPerSubscriber) {
+            throw new IllegalArgumentException("Subscribe to between 1 and " + maxProductsPerSubscriber + " products");
+        }
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("Too many stock stream subscribers");
+        }
+
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMillis), Set.copyOf(ids));
+        subscriber.emitter.onCompletion(subscriber::close);
+        subscriber.emitter.onTimeout(subscriber::close);
+        subscriber.emitter.onError(error -> subscriber.close());
+        for (Long productId : ids) {
+            subscribersByProduct.compute(productId, (id, subscribers) -> {
+                Set<Subscriber> set = subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+                set.add(subscriber);
+                return set;
+            });
+        }
+        try {
+            currentLevels(ids).forEach(subscriber::offer);
+        } catch (RuntimeException e) {
+            subscriber.close();
+            throw e;
+        }
+        // A change published between registering and reading the snapshot may have been overwritten by it;
+        // the next publish re-reads these products and corrects it
+        changed.addAll(ids);
+        return subscriber.emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        changed.addAll(event.productIds());
+    }
+
+    @Scheduled(fixedDelayString = "${stock-stream.interval-ms:250}")
+    public void publish() {
+        try {
+            dropStalled();
+            Set<Long> productIds = new HashSet<>();
+            for (Long productId : changed) {
+                if (changed.remove(productId)) {
+                    productIds.add(productId);
+                }
+            }
+            if (inventoryLedger.isEnabled()) {
+                productIds.addAll(inventoryLedger.drainChanged());
+            }
+            productIds.retainAll(subscribersByProduct.keySet());
+            if (productIds.isEmpty()) {
+                return;
+            }
+            for (StockLevel level : currentLevels(productIds)) {
+                Set<Subscriber> subscribers = subscribersByProduct.get(level.productId());
+                if (subscribers != null) {
+                    subscribers.forEach(subscriber -> subscriber.offer(level));
+                }
+            }
+            published.add(productIds.size());
+        } catch (IllegalStateException e) {
+            logger.debug("Stock stream skipped a publish: {}", e.getMessage());
+        } catch (Exception e) {
+            logger.error("Stock stream publish failed", e);
+        }
+    }
+
+    private void dropStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : sending) {
+            long started = subscriber.sendStartedNanos;
+            if (started != 0 && now - started > writeTimeoutNanos) {
+                subscriber.stall();
+            }
+        }
+    }
+
+    // At most one replacement per sender, so clients that all stop reading cannot grow the pool without bound
+    private boolean lendSender() {
+        synchronized (senders) {
+            if (replacements >= senderCount) {
+                return false;
+            }
+            replacements++;
+            senders.setMaximumPoolSize(senderCount + replacements);
+            senders.setCorePoolSize(senderCount + replacements);
+            return true;
+        }
+    }
+
+    private void returnSender() {
+        synchronized (senders) {
+            if (replacements == 0) {
+                return;
+            }
+            replacements--;
+            senders.setCorePoolSize(senderCount + replacements);
+            senders.setMaximumPoolSize(senderCount + replacements);
+        }
+    }
+
+    // The ledger holds live availability when enabled; otherwise, and for products it has not loaded, the row
+    private List<StockLevel> currentLevels(Collection<Long> productIds) {
+        if (!inventoryLedger.isEnabled()) {
+            return productRepo.findStockLevelsByIdIn(productIds);
+        }
+        List<StockLevel> levels = new ArrayList<>(productIds.size());
+        List<Long> unloaded = new ArrayList<>();
+        for (Long productId : productIds) {
+            Integer available = inventoryLedger.available(productId);
+            if (available == null) {
+                unloaded.add(productId);
+            } else {
+                levels.add(new StockLevel(productId, available));
+            }
+        }
+        if (!unloaded.isEmpty()) {
+            levels.addAll(productRepo.findStockLevelsByIdIn(unloaded));
+        }
+        return levels;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", subscriberCount.get());
+        stats.put("subscribedProducts", subscribersByProduct.size());
+        stats.put("publishedProducts", published.sum());
+        stats.put("sent", sent.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("stalledSubscribers", stalled.sum());
+        stats.put("queuedSends", senders.getQueue().size());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<Long> productIds;
+        // Latest level not yet sent, per product
+        private final ConcurrentHashMap<Long, StockLevel> pending = new ConcurrentHashMap<>();
+        // Last level sent per product; only touched by the drain task, which runs one at a time
+        private final Map<Long, Integer> lastSent = new HashMap<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean stalledSend = new AtomicBoolean();
+        private final AtomicInteger loan = new AtomicInteger(NO_LOAN);
+        // When the send in progress started, 0 when none is; written by the drain task
+        private volatile long sendStartedNanos;
+        private volatile Thread sender;
+
+        Subscriber(SseEmitter emitter, Set<Long> productIds) {
+            this.emitter = emitter;
+            this.productIds = productIds;
+        }
+
+        void offer(StockLevel level) {
+            if (pending.put(level.productId(), level) != null) {
+                coalesced.increment();
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (closed.get() || !draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                senders.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Only after shutdown
+                draining.set(false);
+            }
+        }
+
+        private void drain() {
+            loan.set(NO_LOAN);
+            try {
+                for (Long productId : pending.keySet()) {
+                    if (closed.get()) {
+                        return;
+                    }
+                    StockLevel level = pending.remove(productId);
+                    if (level == null || Integer.valueOf(level.stockQuantity()).equals(lastSent.get(productId))) {
+                        continue;
+                    }
+                    send(level);
+                    lastSent.put(productId, level.stockQuantity());
+                    sent.increment();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away, or stopped reading and was dropped
+                close();
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                draining.set(false);
+                if (!loan.compareAndSet(NO_LOAN, DRAIN_FINISHED)) {
+                    returnSender();
+                }
+            }
+            // Levels offered while the last send was in progress
+            if (!pending.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void send(StockLevel level) throws IOException {
+            sender = Thread.currentThread();
+            sendStartedNanos = System.nanoTime();
+            sending.add(this);
+            try {
+                emitter.send(SseEmitter.event().name("stock").data(level));
+            } finally {
+                sending.remove(this);
+                sendStartedNanos = 0;
+                sender = null;
+            }
+            if (closed.get()) {
+                throw new IOException("Stock stream subscriber stopped reading");
+            }
+        }
+
+        // Called by the stall check while the send is still blocked. The emitter is completed by the sender
+        // once the write returns, since completing it here would wait on the same lock as the blocked send.
+        void stall() {
+            if (!stalledSend.compareAndSet(false, true)) {
+                return;
+            }
+            sending.remove(this);
+            close();
+            stalled.increment();
+            if (lendSender() && !loan.compareAndSet(NO_LOAN, LOANED)) {
+                // The write returned meanwhile and its drain is over
+                returnSender();
+            }
+            Thread thread = sender;
+            if (thread != null) {
+                thread.interrupt();
+            }
+            logger.debug("Dropped a stock stream subscriber that stopped reading");
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            for (Long productId : productIds) {
+                subscribersByProduct.computeIfPresent(productId, (id, subscribers) -> {
+                    subscribers.remove(this);
+                    return subscribers.isEmpty() ? null : subscribers;
+                });
+            }
+            subscriberCount.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.ecomm.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Hierarchical hashed timer wheel. Each level has 64 slots, and a slot on level n spans 64^n ticks. A timer
+// goes into the coarsest slot its deadline fits, and when a lower level wraps the matching slot of the level
+// above is cascaded down, so scheduling and cancelling are O(1) and advancing only visits the slots that are due.
+// Deadlines past the top level are parked in its last slot and re-placed when they cascade.
+public class TimerWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private final long tickMillis;
+    private final int levels;
+    // Sentinel heads of circular doubly linked lists, one per slot
+    private final Timeout<T>[][] wheels;
+    // Every tick up to and including this one has been processed
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(Duration tick, int levels, long nowMillis) {
+        if (tick.toMillis() < 1 || levels < 1 || levels * SLOT_BITS >= Long.SIZE - 1) {
+            throw new IllegalArgumentException("Invalid timer wheel tick or level count");
+        }
+        this.tickMillis = tick.toMillis();
+        this.levels = levels;
+        this.wheels = new Timeout[levels][SLOTS];
+        for (Timeout<T>[] wheel : wheels) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheel[slot] = new Timeout<>(this, null, 0);
+            }
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    // Fires at the first advance at or after the deadline, never before it
+    public synchronized Timeout<T> schedule(T value, long deadlineMillis) {
+        long deadlineTick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        Timeout<T> timeout = new Timeout<>(this, value, deadlineTick);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    // Processes every tick up to now and hands the values that came due to onExpiry, outside the lock
+    public void advance(long nowMillis, Consumer<T> onExpiry) {
+        List<T> expired = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = nowMillis / tickMillis;
+            if (size == 0) {
+                currentTick = Math.max(currentTick, targetTick);
+            }
+            while (currentTick < targetTick) {
+                currentTick++;
+                // Top down, so timers cascading out of a coarse slot can still land in a finer slot due now
+                for (int level = levels - 1; level > 0; level--) {
+                    if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                        cascade(wheels[level][slot(currentTick, level)], expired);
+                    }
+                }
+                drain(wheels[0][(int) (currentTick & SLOT_MASK)], expired);
+            }
+        }
+        expired.forEach(onExpiry);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void place(Timeout<T> timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        int level = 0;
+        while (level < levels - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        long tick = timeout.deadlineTick;
+        long range = 1L << (SLOT_BITS * levels);
+        if (delta >= range) {
+            tick = currentTick + range - 1;
+        }
+        link(wheels[level][slot(tick, level)], timeout);
+    }
+
+    private void cascade(Timeout<T> head, List<T> expired) {
+        Timeout<T> timeout = head.next;
+        while (timeout != head) {
+            Timeout<T> next = timeout.next;
+            unlink(timeout);
+            if (timeout.deadlineTick <= currentTick) {
+                size--;
+                expired.add(timeout.value);
+            } else {
+                place(timeout);
+            }
+            timeout = next;
+        }
+    }
+
+    private void drain(Timeout<T> head, List<T> expired) {
+        while (head.next != head) {
+            Timeout<T> timeout = head.next;
+            unlink(timeout);
+            size--;
+            expired.add(timeout.value);
+        }
+    }
+
+    private synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.next == null) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    private static int slot(long tick, int level) {
+        return (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+
+    private static <T> void link(Timeout<T> head, Timeout<T> timeout) {
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+    }
+
+    private static <T> void unlink(Timeout<T> timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    public static final class Timeout<T> {
+        private final TimerWheel<T> wheel;
+        private final T value;
+        private final long deadlineTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(TimerWheel<T> wheel, T value, long deadlineTick) {
+            this.wheel = wheel;
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+            // A sentinel is an empty circular list
+            if (value == null) {
+                this.prev = this;
+                this.next = this;
+            }
+        }
+
+        // False if the timer already fired or was cancelled
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+    }
+}
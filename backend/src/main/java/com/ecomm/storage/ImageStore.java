@@ -0,0 +1,25 @@
+package com.ecomm.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+// Content-addressed storage for product images. Keys are the hex SHA-256 of the image bytes,
+// so identical uploads share one stored object.
+public interface ImageStore {
+
+    // Streams the content to storage while hashing it; content that is already stored is not written twice
+    String put(InputStream in) throws IOException;
+
+    default String put(byte[] data) throws IOException {
+        return put(new ByteArrayInputStream(data));
+    }
+
+    // Stores an object derived from stored content (e.g. a resized variant) under a caller-chosen key
+    void putDerived(String key, byte[] data) throws IOException;
+
+    Optional<StoredImage> find(String key);
+
+    void delete(String key) throws IOException;
+}
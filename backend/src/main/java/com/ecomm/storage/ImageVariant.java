@@ -0,0 +1,42 @@
+package com.ecomm.storage;
+
+import java.util.Arrays;
+
+// Size variants derived from an uploaded image. Variants are stored under "<source key>-<name>",
+// so a new upload (new content hash) never serves variants of the previous picture.
+public enum ImageVariant {
+    ORIGINAL("original", 0),
+    THUMBNAIL("thumbnail", 120),
+    CARD("card", 300),
+    DETAIL("detail", 800);
+
+    private final String param;
+    private final int maxDimension;
+
+    ImageVariant(String param, int maxDimension) {
+        this.param = param;
+        this.maxDimension = maxDimension;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    public String keyFor(String sourceKey) {
+        return this == ORIGINAL ? sourceKey : sourceKey + "-" + param;
+    }
+
+    public static ImageVariant fromParam(String param) {
+        if (param == null || param.isBlank()) {
+            return ORIGINAL;
+        }
+        return Arrays.stream(values())
+                .filter(variant -> variant.param.equalsIgnoreCase(param.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported image size: " + param));
+    }
+}
@@ -0,0 +1,25 @@
+package com.ecomm.storage;
+
+import com.ecomm.service.ProductImageService;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// One-shot move of imageData blobs into the image store.
+// Run once with --images.migrate-blobs=true; rows already migrated are skipped, so reruns are safe.
+@Component
+@ConditionalOnProperty(name = "images.migrate-blobs", havingValue = "true")
+public class LegacyImageMigration implements ApplicationRunner {
+
+    private final ProductImageService productImageService;
+
+    public LegacyImageMigration(ProductImageService productImageService) {
+        this.productImageService = productImageService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        productImageService.migrateLegacyImages();
+    }
+}
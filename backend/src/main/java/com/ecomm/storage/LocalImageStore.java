@@ -0,0 +1,111 @@
+package com.ecomm.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(name = "images.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalImageStore implements ImageStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalImageStore.class);
+
+    private final Path root;
+    // Uploads land here first; it sits under the root so the final rename stays on one filesystem
+    private final Path incoming;
+
+    public LocalImageStore(@Value("${images.storage.local.root:./data/images}") String root) throws IOException {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.incoming = this.root.resolve("incoming");
+        Files.createDirectories(this.incoming);
+        logger.info("Storing product images under {}", this.root);
+    }
+
+    @Override
+    public String put(InputStream in) throws IOException {
+        Path temp = Files.createTempFile(incoming, "upload-", ".tmp");
+        try {
+            // Hash while copying, so the upload is read exactly once and never buffered whole
+            MessageDigest digest = ContentHash.newDigest();
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                in.transferTo(out);
+            }
+            String key = ContentHash.toKey(digest);
+            Path target = resolve(key);
+            if (Files.exists(target)) {
+                logger.debug("Image {} already stored, discarding duplicate upload", key);
+                return key;
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            return key;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public void putDerived(String key, byte[] data) throws IOException {
+        if (!ContentHash.isValidKey(key)) {
+            throw new IllegalArgumentException("Invalid image key: " + key);
+        }
+        write(key, data);
+    }
+
+    // Write to a temp file in the same directory and rename, so readers never see a partial object
+    private void write(String key, byte[] data) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), key, ".tmp");
+        try {
+            Files.write(temp, data);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Another writer of the same key won the race; both copies are identical
+            logger.debug("Image {} already stored", key);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public Optional<StoredImage> find(String key) {
+        if (!ContentHash.isValidKey(key)) {
+            return Optional.empty();
+        }
+        Path path = resolve(key);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return Optional.of(new StoredImage(key, path, attributes.size(), attributes.lastModifiedTime().toInstant()));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        if (ContentHash.isValidKey(key)) {
+            Files.deleteIfExists(resolve(key));
+        }
+    }
+
+    // Two levels of fan-out keep directory sizes small: ab/cd/abcd...
+    private Path resolve(String key) {
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+}
@@ -0,0 +1,8 @@
+package com.ecomm.storage;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+// A stored object on local disk, served to clients straight from the file without loading it
+public record StoredImage(String key, Path path, long size, Instant lastModified) {
+}
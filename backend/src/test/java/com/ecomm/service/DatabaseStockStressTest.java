@@ -0,0 +1,13 @@
+package com.ecomm.service;
+
+import org.springframework.test.context.TestPropertySource;
+
+// Checkouts are conditional UPDATEs on the product row
+@TestPropertySource(properties = "inventory.ledger.enabled=false")
+class DatabaseStockStressTest extends StockStressTestSupport {
+
+    @Override
+    int stockOf(Long productId) {
+        return productRepo.findStockQuantityById(productId);
+    }
+}
@@ -0,0 +1,18 @@
+package com.ecomm.service;
+
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Checkouts take stock from the in-memory counters; the journal is flushed before the rows are compared
+@TestPropertySource(properties = "inventory.ledger.enabled=true")
+class LedgerStockStressTest extends StockStressTestSupport {
+
+    @Override
+    int stockOf(Long productId) {
+        inventoryLedger.flush();
+        int available = inventoryLedger.available(productId);
+        assertEquals(available, productRepo.findStockQuantityById(productId), "row should match the ledger");
+        return available;
+    }
+}
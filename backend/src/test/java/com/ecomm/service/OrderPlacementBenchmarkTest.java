@@ -0,0 +1,165 @@
+package com.ecomm.service;
+
+import com.ecomm.dto.OrderItemDTO;
+import com.ecomm.dto.OrderRequest;
+import com.ecomm.model.Product;
+import com.ecomm.model.Role;
+import com.ecomm.model.User;
+import com.ecomm.repo.InventoryJournalRepo;
+import com.ecomm.repo.OrderRepository;
+import com.ecomm.repo.ProductRepo;
+import com.ecomm.repo.UserRepo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Statements and latency of placing one order with 1, 10 and 50 lines, counted by Hibernate's statistics.
+// Products are loaded with one query and the order with its items goes out as one insert batch, so the number
+// of statements must not grow with the cart; only table id allocation may add one, once per 50 ids.
+// Stock comes from the inventory ledger, whose journal rows are a single JDBC batch outside these counts.
+@Tag("benchmark")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "inventory.ledger.enabled=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({OrderService.class, InventoryService.class, InventoryLedger.class, InventoryJournal.class,
+        StockReservations.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderPlacementBenchmarkTest {
+
+    private static final int WARMUP_ORDERS = 20;
+    private static final int MEASURED_ORDERS = 100;
+    // Select user, select products, insert order, insert items, plus one id block per table at most
+    private static final long MAX_STATEMENTS_PER_ORDER = 6;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private InventoryJournalRepo journalRepo;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private PaymentService paymentService;
+
+    @MockitoBean
+    private EmailOutbox emailOutbox;
+
+    @MockitoBean
+    private OrderHistoryCache orderHistoryCache;
+
+    private Statistics statistics;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        User user = new User();
+        user.setUsername("benchmark");
+        user.setEmail("benchmark@example.com");
+        user.setPassword("secret-password");
+        user.setRoles(Role.USER);
+        userId = userRepo.save(user).getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        orderRepository.deleteAll();
+        journalRepo.deleteAll();
+        productRepo.deleteAll();
+        userRepo.deleteAll();
+    }
+
+    @ParameterizedTest(name = "{0} lines")
+    @ValueSource(ints = {1, 10, 50})
+    void statementsStayFlatAsTheCartGrows(int lines) {
+        List<Product> products = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            products.add(createProduct(i));
+        }
+        OrderRequest request = cart(products);
+
+        for (int i = 0; i < WARMUP_ORDERS; i++) {
+            orderService.createAndPlaceOrder(userId, "benchmark", request, UUID.randomUUID().toString());
+        }
+
+        statistics.clear();
+        long[] samples = new long[MEASURED_ORDERS];
+        for (int i = 0; i < MEASURED_ORDERS; i++) {
+            long start = System.nanoTime();
+            orderService.createAndPlaceOrder(userId, "benchmark", request, UUID.randomUUID().toString());
+            samples[i] = System.nanoTime() - start;
+        }
+
+        double statementsPerOrder = (double) statistics.getPrepareStatementCount() / MEASURED_ORDERS;
+        double insertsPerOrder = (double) statistics.getEntityInsertCount() / MEASURED_ORDERS;
+        System.out.printf("%d-line cart: %.2f statements and %.2f queries for %.0f row inserts per order, %s%n",
+                lines, statementsPerOrder, (double) statistics.getQueryExecutionCount() / MEASURED_ORDERS,
+                insertsPerOrder, SyntheticCatalog.percentiles(samples));
+
+        assertEquals(1 + lines, insertsPerOrder, 0.0, "one order row and one row per line");
+        assertEquals(0, statistics.getEntityUpdateCount(), "stock goes through the ledger, not product updates");
+        assertTrue(statementsPerOrder <= MAX_STATEMENTS_PER_ORDER,
+                "statements per order grew with the cart: " + statementsPerOrder);
+    }
+
+    private Product createProduct(int index) {
+        Product product = new Product();
+        product.setName("benchmark product " + index);
+        product.setPrice(100 + index);
+        product.setProductAvailable(true);
+        product.setStockQuantity(1_000);
+        return productRepo.save(product);
+    }
+
+    private static OrderRequest cart(List<Product> products) {
+        List<OrderItemDTO> items = new ArrayList<>(products.size());
+        double total = 0;
+        for (Product product : products) {
+            OrderItemDTO item = new OrderItemDTO();
+            item.setProductId(product.getId());
+            item.setQuantity(1);
+            items.add(item);
+            total += product.getPrice();
+        }
+        OrderRequest request = new OrderRequest();
+        request.setItems(items);
+        request.setTotalAmount(total);
+        return request;
+    }
+}
@@ -0,0 +1,68 @@
+package com.ecomm.service;
+
+import com.ecomm.dto.ProductDTO;
+import com.ecomm.dto.SearchPage;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Query latency of BM25 search over a generated catalog of 10k and 100k products. Latencies are printed per
+// query shape and sort; the assertion only catches gross regressions (such as sorting every match instead of
+// keeping a bounded heap), since absolute numbers depend on the machine.
+@Tag("benchmark")
+class ProductSearchIndexBenchmarkTest {
+
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 1000;
+    private static final long P99_CEILING_NANOS = 100_000_000L;
+
+    private static final List<String> QUERIES = List.of(
+            // One common token: the widest match set, thousands of hits to rank
+            "wireless",
+            // Several tokens: intersection starting from the rarest
+            "portable bluetooth speaker",
+            // Brand plus category
+            "sony headphones",
+            // Typed-ahead last token, expanded as a prefix
+            "smart wat"
+    );
+
+    @ParameterizedTest(name = "{0} products")
+    @ValueSource(ints = {10_000, 100_000})
+    void searchLatency(int productCount) {
+        List<ProductDTO> products = SyntheticCatalog.products(productCount, 42);
+        long buildStart = System.nanoTime();
+        ProductSearchIndex index = SyntheticCatalog.searchIndex(products);
+        System.out.printf("%,d products indexed in %.0f ms%n", productCount,
+                SyntheticCatalog.millis(System.nanoTime() - buildStart));
+
+        for (SearchSort sort : SearchSort.values()) {
+            for (String query : QUERIES) {
+                for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                    index.search(query, sort, false, 0, 20);
+                }
+                long[] samples = new long[MEASURED_ROUNDS];
+                SearchPage<ProductDTO> page = null;
+                for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                    long start = System.nanoTime();
+                    page = index.search(query, sort, false, 0, 20);
+                    samples[i] = System.nanoTime() - start;
+                }
+                System.out.printf("%,d products, sort=%s, \"%s\" (%,d hits): %s%n", productCount,
+                        sort.getParam(), query, page.getTotal(), SyntheticCatalog.percentiles(samples));
+
+                assertFalse(page.getItems().isEmpty(), "no hits for " + query);
+                long[] sorted = samples.clone();
+                Arrays.sort(sorted);
+                assertTrue(SyntheticCatalog.percentile(sorted, 0.99) < P99_CEILING_NANOS,
+                        "p99 over " + SyntheticCatalog.millis(P99_CEILING_NANOS) + " ms for " + query);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.ecomm.service;
+
+import com.ecomm.dto.ProductDTO;
+import com.ecomm.dto.SearchPage;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Latency of fuzzy (fuzzy=true) search: trigram candidates from the term dictionary, verified with the banded
+// Levenshtein check. Model codes make the dictionary grow with the catalog (about 10k and 100k terms here),
+// which is what fuzzy cost scales with. Each misspelling must still find the products it was meant for, and
+// p99 must stay within the documented bound; the printed percentiles are the numbers to compare between runs.
+@Tag("benchmark")
+class ProductSearchIndexFuzzyBenchmarkTest {
+
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 1000;
+    // Documented bound for one fuzzy query at 100k products on a developer machine
+    private static final long P99_CEILING_NANOS = 50_000_000L;
+
+    // Misspelled query -> a term every hit should contain once corrected
+    private static final Map<String, String> TYPOS = Map.of(
+            "wireles", "wireless",
+            "hedphones", "headphones",
+            "samsnug", "samsung",
+            "portible speker", "speaker",
+            "keybord logitec", "keyboard"
+    );
+
+    @ParameterizedTest(name = "{0} products")
+    @ValueSource(ints = {10_000, 100_000})
+    void fuzzySearchLatency(int productCount) {
+        ProductSearchIndex index = SyntheticCatalog.searchIndex(
+                SyntheticCatalog.withModelCodes(SyntheticCatalog.products(productCount, 42), 7));
+
+        for (Map.Entry<String, String> typo : TYPOS.entrySet()) {
+            String query = typo.getKey();
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                index.search(query, SearchSort.RELEVANCE, true, 0, 20);
+            }
+            long[] samples = new long[MEASURED_ROUNDS];
+            SearchPage<ProductDTO> page = null;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                long start = System.nanoTime();
+                page = index.search(query, SearchSort.RELEVANCE, true, 0, 20);
+                samples[i] = System.nanoTime() - start;
+            }
+            SearchPage<ProductDTO> exact = index.search(query, SearchSort.RELEVANCE, false, 0, 20);
+            System.out.printf("%,d products, fuzzy \"%s\" (%,d hits, %,d without fuzzy): %s%n", productCount,
+                    query, page.getTotal(), exact.getTotal(), SyntheticCatalog.percentiles(samples));
+
+            assertTrue(page.getTotal() > 0, "no fuzzy hits for " + query);
+            String expected = typo.getValue();
+            assertTrue(page.getItems().stream().allMatch(product -> mentions(product, expected)),
+                    "fuzzy hits for " + query + " should mention " + expected);
+            long[] sorted = samples.clone();
+            Arrays.sort(sorted);
+            assertTrue(SyntheticCatalog.percentile(sorted, 0.99) < P99_CEILING_NANOS,
+                    "p99 over " + SyntheticCatalog.millis(P99_CEILING_NANOS) + " ms for " + query);
+        }
+    }
+
+    private static boolean mentions(ProductDTO product, String term) {
+        return (product.name() + " " + product.brand() + " " + product.category() + " " + product.description())
+                .toLowerCase().contains(term);
+    }
+}
@@ -0,0 +1,157 @@
+package com.ecomm.service;
+
+import com.ecomm.model.Product;
+import com.ecomm.repo.InventoryJournalRepo;
+import com.ecomm.repo.ProductRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Contended checkouts against a fixed stock: THREADS buyers keep buying until they are refused, so demand
+// always exceeds supply. Every unit must be sold exactly once and no stock level may go negative. Subclasses
+// run it with the inventory ledger on and off; each logs its throughput.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({InventoryService.class, InventoryLedger.class, InventoryJournal.class, StockReservations.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+abstract class StockStressTestSupport {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockStressTestSupport.class);
+
+    static final int THREADS = 16;
+
+    @Autowired
+    InventoryService inventoryService;
+
+    @Autowired
+    InventoryLedger inventoryLedger;
+
+    @Autowired
+    ProductRepo productRepo;
+
+    @Autowired
+    InventoryJournalRepo journalRepo;
+
+    @AfterEach
+    void cleanUp() {
+        journalRepo.deleteAll();
+        productRepo.deleteAll();
+    }
+
+    // Current stock as the service sees it: the ledger counter when enabled, otherwise the row
+    abstract int stockOf(Long productId);
+
+    @Test
+    void singleLineCheckoutsNeverOversell() throws Exception {
+        int stock = 2_000;
+        Long productId = createProduct(stock);
+
+        Result result = runBuyers(() -> inventoryService.decrement(productId, 1).succeeded());
+
+        report("single line", result);
+        assertEquals(stock, result.sold, "every unit should be sold exactly once");
+        assertEquals(0, stockOf(productId));
+        assertTrue(productRepo.findStockQuantityById(productId) >= 0);
+    }
+
+    @Test
+    void multiLineCheckoutsAreAllOrNothing() throws Exception {
+        Long scarce = createProduct(600);
+        Long plentiful = createProduct(1_000);
+
+        Result result = runBuyers(() -> {
+            try {
+                inventoryService.decrementAll(Map.of(scarce, 1, plentiful, 2));
+                return true;
+            } catch (InsufficientStockException e) {
+                return false;
+            }
+        });
+
+        report("two lines", result);
+        // Bounded by the scarcer line at 1 per cart and the plentiful one at 2 per cart
+        assertEquals(500, result.sold);
+        assertEquals(100, stockOf(scarce));
+        assertEquals(0, stockOf(plentiful));
+        assertTrue(productRepo.findStockQuantityById(scarce) >= 0);
+        assertTrue(productRepo.findStockQuantityById(plentiful) >= 0);
+    }
+
+    Long createProduct(int stock) {
+        Product product = new Product();
+        product.setName("stress " + stock);
+        product.setPrice(10);
+        product.setProductAvailable(true);
+        product.setStockQuantity(stock);
+        return productRepo.save(product).getId();
+    }
+
+    // Each buyer repeats the checkout until it is refused; returns the number of successful checkouts
+    private Result runBuyers(Callable<Boolean> checkout) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<int[]>> buyers = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                buyers.add(pool.submit(() -> {
+                    start.await();
+                    int bought = 0;
+                    int attempts = 0;
+                    boolean succeeded;
+                    do {
+                        attempts++;
+                        succeeded = checkout.call();
+                        if (succeeded) {
+                            bought++;
+                        }
+                    } while (succeeded);
+                    return new int[]{bought, attempts};
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            int sold = 0;
+            int attempts = 0;
+            for (Future<int[]> buyer : buyers) {
+                int[] counts = buyer.get(2, TimeUnit.MINUTES);
+                sold += counts[0];
+                attempts += counts[1];
+            }
+            return new Result(sold, attempts, System.nanoTime() - begin);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void report(String scenario, Result result) {
+        double seconds = result.elapsedNanos / 1e9;
+        logger.info("{}, {}: {} checkouts ({} attempts) by {} threads in {} ms, {} checkouts/s",
+                getClass().getSimpleName(), scenario, result.sold, result.attempts, THREADS,
+                Math.round(seconds * 1000), Math.round(result.sold / seconds));
+    }
+
+    private record Result(int sold, int attempts, long elapsedNanos) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.ecomm.service;
+
+import com.ecomm.dto.ProductDTO;
+import com.ecomm.repo.ProductRepo;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic generated catalog for the search benchmarks: names, brands and categories come from small
+// vocabularies, like a real catalog, and descriptions are about forty words drawn from a larger one
+final class SyntheticCatalog {
+
+    static final String[] BRANDS = {
+            "samsung", "apple", "sony", "lenovo", "philips", "bosch", "nike", "adidas", "puma", "canon",
+            "nikon", "dell", "asus", "xiaomi", "oneplus", "boat", "prestige", "havells", "logitech", "jbl"
+    };
+    static final String[] CATEGORIES = {
+            "laptop", "headphones", "mobile", "electronics", "toys", "fashion", "kitchen", "camera",
+            "footwear", "appliances"
+    };
+    static final String[] NOUNS = {
+            "speaker", "earbuds", "monitor", "keyboard", "mouse", "charger", "blender", "kettle", "sneakers",
+            "jacket", "backpack", "watch", "tablet", "router", "printer", "camera", "lens", "tripod", "heater",
+            "fan", "toaster", "mixer", "headset", "console", "drone"
+    };
+    static final String[] ADJECTIVES = {
+            "wireless", "portable", "compact", "smart", "premium", "classic", "ultra", "pro", "lite", "digital",
+            "ergonomic", "waterproof", "foldable", "silent", "rapid"
+    };
+    private static final String[] FILLER = {
+            "with", "and", "for", "the", "battery", "life", "design", "quality", "sound", "display", "fast",
+            "durable", "lightweight", "warranty", "everyday", "use", "home", "office", "travel", "power",
+            "control", "comfort", "fit", "steel", "finish", "colour", "black", "white", "blue", "red", "noise",
+            "cancelling", "bluetooth", "usb", "charging", "hours", "performance", "storage", "memory", "screen"
+    };
+
+    private static final String MODEL_CODE_CHARS = "bcdfghjkmnpqrstvwxz23456789";
+
+    private SyntheticCatalog() {
+    }
+
+    static List<ProductDTO> products(int count, long seed) {
+        Random random = new Random(seed);
+        List<ProductDTO> products = new ArrayList<>(count);
+        long day = 24L * 60 * 60 * 1000;
+        for (int i = 1; i <= count; i++) {
+            String brand = pick(random, BRANDS);
+            String name = pick(random, ADJECTIVES) + " " + pick(random, NOUNS) + " " + (100 + random.nextInt(900));
+            StringBuilder description = new StringBuilder(name);
+            for (int word = 0; word < 40; word++) {
+                description.append(' ').append(pick(random, FILLER));
+            }
+            Date releaseDate = random.nextInt(10) == 0 ? null : new Date(1_600_000_000_000L + random.nextInt(1500) * day);
+            products.add(new ProductDTO((long) i, name, description.toString(), brand,
+                    100 + random.nextInt(100_000), pick(random, CATEGORIES), releaseDate, true,
+                    random.nextInt(50), null, null, null, null));
+        }
+        return products;
+    }
+
+    // Appends a random five-character model code to every name, so the term dictionary grows with the catalog
+    // the way real part numbers make it grow; fuzzy lookups scan candidates from that dictionary. Codes have no
+    // vowels so they stay out of reach of the misspelled words the benchmark searches for
+    static List<ProductDTO> withModelCodes(List<ProductDTO> products, long seed) {
+        Random random = new Random(seed);
+        List<ProductDTO> coded = new ArrayList<>(products.size());
+        for (ProductDTO product : products) {
+            StringBuilder code = new StringBuilder(5);
+            for (int i = 0; i < 5; i++) {
+                code.append(MODEL_CODE_CHARS.charAt(random.nextInt(MODEL_CODE_CHARS.length())));
+            }
+            coded.add(new ProductDTO(product.id(), product.name() + " " + code, product.description(),
+                    product.brand(), product.price(), product.category(), product.releaseDate(),
+                    product.productAvailable(), product.stockQuantity(), null, null, null, null));
+        }
+        return coded;
+    }
+
+    // An index over the products, built the way the application builds it at startup
+    static ProductSearchIndex searchIndex(List<ProductDTO> products) {
+        ProductRepo productRepo = Mockito.mock(ProductRepo.class);
+        Mockito.when(productRepo.findAllDtos()).thenReturn(products);
+        ProductSearchIndex index = new ProductSearchIndex(3.0f, 2.0f, 1.5f, 1.0f);
+        ReflectionTestUtils.setField(index, "productRepo", productRepo);
+        ReflectionTestUtils.setField(index, "maxResults", 1000);
+        index.build();
+        return index;
+    }
+
+    // Nanosecond samples -> "p50/p95/p99/max" in milliseconds
+    static String percentiles(long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return String.format("p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, max %.3f ms",
+                millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.95)),
+                millis(percentile(sorted, 0.99)), millis(sorted[sorted.length - 1]));
+    }
+
+    static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static String pick(Random random, String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+}
@@ -0,0 +1,131 @@
+package com.ecomm.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+
+    // With a 1 ms tick a level-n slot spans 64^n ms
+    private static final long LEVEL_1 = 64;
+    private static final long LEVEL_2 = 64 * 64;
+    private static final long LEVEL_3 = 64 * 64 * 64;
+
+    @Test
+    void firesDeadlinesOnEveryLevelExactlyWhenDue() {
+        TimerWheel<Long> wheel = new TimerWheel<>(Duration.ofMillis(1), 4, 0);
+        long[] deadlines = {10, 5 * LEVEL_1 + 3, 3 * LEVEL_2 + 7, 2 * LEVEL_3 + 11};
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+
+        for (long deadline : deadlines) {
+            List<Long> fired = new ArrayList<>();
+            wheel.advance(deadline - 1, fired::add);
+            assertTrue(fired.isEmpty(), "fired before " + deadline);
+            wheel.advance(deadline, fired::add);
+            assertEquals(List.of(deadline), fired);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void neverFiresBeforeTheDeadline() {
+        Random random = new Random(7);
+        // A 10 ms tick, so most deadlines fall between ticks and must round up
+        TimerWheel<Long> wheel = new TimerWheel<>(Duration.ofMillis(10), 3, 1_000);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            long deadline = 1_000 + 1 + random.nextInt(3_000_000);
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+
+        List<Long> fired = new ArrayList<>();
+        long now = 1_000;
+        while (fired.size() < deadlines.size()) {
+            now += 1 + random.nextInt(5_000);
+            long at = now;
+            wheel.advance(now, deadline -> {
+                assertTrue(deadline <= at, "deadline " + deadline + " fired at " + at);
+                fired.add(deadline);
+            });
+            // Everything due by the last whole tick has fired
+            long due = deadlines.stream().filter(deadline -> deadline <= at - at % 10).count();
+            assertTrue(fired.size() >= due, "due timers still pending at " + at);
+        }
+        assertEquals(deadlines.size(), fired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelledTimerDoesNotFire() {
+        TimerWheel<String> wheel = new TimerWheel<>(Duration.ofMillis(1), 4, 0);
+        TimerWheel.Timeout<String> cancelled = wheel.schedule("cancelled", 3 * LEVEL_1);
+        wheel.schedule("kept", 3 * LEVEL_1);
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel(), "a second cancel has nothing to cancel");
+        assertEquals(1, wheel.size());
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(4 * LEVEL_1, fired::add);
+        assertEquals(List.of("kept"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelAfterFiringReportsNothingCancelled() {
+        TimerWheel<String> wheel = new TimerWheel<>(Duration.ofMillis(1), 4, 0);
+        TimerWheel.Timeout<String> timeout = wheel.schedule("fired", 100);
+        List<String> fired = new ArrayList<>();
+        wheel.advance(100, fired::add);
+
+        assertEquals(List.of("fired"), fired);
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void advancingPastSeveralWrapsFiresEveryTimerOnTime() {
+        // Two levels cover 4096 ticks; the last deadline is parked in the top level and re-placed on each wrap
+        TimerWheel<Long> wheel = new TimerWheel<>(Duration.ofMillis(1), 2, 0);
+        long[] deadlines = {LEVEL_2 - 1, LEVEL_2 + 17, 2 * LEVEL_2 + LEVEL_1, 3 * LEVEL_2 + 100};
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+
+        List<Long> fired = new ArrayList<>();
+        for (long now = 0; now <= 4 * LEVEL_2; now += 7) {
+            long at = now;
+            wheel.advance(now, deadline -> {
+                assertTrue(deadline <= at && at - deadline < 7, "deadline " + deadline + " fired at " + at);
+                fired.add(deadline);
+            });
+        }
+        assertEquals(List.of(deadlines[0], deadlines[1], deadlines[2], deadlines[3]), fired);
+    }
+
+    @Test
+    void oneAdvanceAcrossSeveralWrapsFiresEverythingDue() {
+        TimerWheel<Long> wheel = new TimerWheel<>(Duration.ofMillis(1), 2, 0);
+        wheel.schedule(50L, 50);
+        wheel.schedule(2 * LEVEL_2, 2 * LEVEL_2);
+        wheel.schedule(5 * LEVEL_2, 5 * LEVEL_2);
+
+        List<Long> fired = new ArrayList<>();
+        wheel.advance(3 * LEVEL_2, fired::add);
+        assertEquals(List.of(50L, 2 * LEVEL_2), fired);
+        assertEquals(1, wheel.size());
+
+        wheel.advance(5 * LEVEL_2, fired::add);
+        assertEquals(List.of(50L, 2 * LEVEL_2, 5 * LEVEL_2), fired);
+    }
+}
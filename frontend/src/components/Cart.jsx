@@ -35,10 +35,12 @@ function Cart() {
       const updatedItems = await Promise.all(
         cart.map(async (item) => {
           try {
-            const [productRes, imageRes] = await Promise.all([
-              API.get(`/api/product/${item.id}`),
-              API.get(`/api/product/${item.id}/image`, { responseType: "blob" }).catch(() => ({ data: null }))
-            ]);
+            const productRes = await API.get(`/api/product/${item.id}`);
+            // Versioned URL from the API lets the browser reuse its cached copy
+            const imageRes = await API.get(
+              productRes.data.imageUrl || `/api/product/${item.id}/image`,
+              { responseType: "blob" }
+            ).catch(() => ({ data: null }));
 
             return {
               ...productRes.data,
@@ -102,13 +104,16 @@ function Cart() {
       const total = calculateTotalAmount(cartItems);
       const { data: user } = await API.get("/profile");
 
-      // Step 1: Create Razorpay order
+      // Step 1: Create Razorpay order; the server holds the cart's stock until the order is placed
       const { data: razorpayOrder } = await API.post("/api/payment/create-order", {
-        items: cartItems,
+        items: cartItems.map(item => ({
+          productId: item.id,
+          quantity: item.quantity
+        })),
         amount: total
       });
 
-      const { razorpayOrderId } = razorpayOrder;
+      const { id: razorpayOrderId } = razorpayOrder;
 
       // Step 2: Load Razorpay SDK
       if (!await loadRazorpayScript()) throw new Error("Razorpay SDK failed to load");
@@ -136,8 +141,9 @@ function Cart() {
               razorpaySignature: response.razorpay_signature,
             });
 
-            // Step 5: Create Order in DB
-            await API.post("/api/orders/create", {
+            // Step 5: Create Order in DB; this also takes the stock, all lines in one transaction.
+            // Keyed on the payment, so retrying after a network error returns the same order.
+            const orderPayload = {
               userId: user.id,
               razorpayOrderId: response.razorpay_order_id,
               razorpayPaymentId: response.razorpay_payment_id,
@@ -147,16 +153,18 @@ function Cart() {
                 quantity: item.quantity,
                 price: item.price
               }))
-            });
-
-            // Step 6: Update stock
-            await Promise.all(
-              cartItems.map(item =>
-                API.put(`/api/product/${item.id}/decrement-stock`, {
-                  quantity: item.quantity
-                })
-              )
-            );
+            };
+            const orderConfig = {
+              headers: { "Idempotency-Key": response.razorpay_payment_id }
+            };
+            for (let attempt = 1; ; attempt++) {
+              try {
+                await API.post("/api/orders/create", orderPayload, orderConfig);
+                break;
+              } catch (err) {
+                if (err.response || attempt >= 3) throw err;
+              }
+            }
 
             // Clear cart
             localStorage.removeItem("cart");
@@ -203,7 +211,11 @@ function Cart() {
 
     } catch (err) {
       console.error("Checkout error:", err);
-      toast.error(err.response?.data?.message || "Checkout failed");
+      if (err.response?.status === 409) {
+        toast.error("Some items just went out of stock");
+      } else {
+        toast.error(err.response?.data?.message || "Checkout failed");
+      }
     } finally {
       setLoading(false);
     }
@@ -24,9 +24,10 @@ const Home = ({ selectedCategory }) => {
         const updatedProducts = await Promise.all(
           data.map(async (product) => {
             try {
+              // Versioned URL from the API lets the browser reuse its cached copy
               const response = await API.get(
-                `/api/product/${product.id}/image`,
-                { responseType: "blob" }
+                product.imageUrl || `/api/product/${product.id}/image`,
+                { responseType: "blob", params: { size: "card" } }
               );
               const imageUrl = URL.createObjectURL(response.data);
               return { ...product, imageUrl };
@@ -51,8 +51,8 @@ const Navbar = ({ onSelectCategory, selectedCategory }) => {
       if (debounceRef.current) clearTimeout(debounceRef.current);
 
       debounceRef.current = setTimeout(() => {
-        performSearch(input);
-      }, 500);
+        fetchSuggestions(input);
+      }, 150);
     } else {
       setSearchResults([]);
       setNoResults(false);
@@ -61,22 +61,55 @@ const Navbar = ({ onSelectCategory, selectedCategory }) => {
     return () => clearTimeout(debounceRef.current);
   }, [input]);
 
+  const showResults = (results) => {
+    setSearchResults(results);
+    setNoResults(results.length === 0);
+    setHighlightIndex(-1);
+  };
+
+  // Typeahead completions are served from memory, so they can follow every keystroke
+  const fetchSuggestions = async (value) => {
+    try {
+      const response = await API.get("/api/products/suggest", {
+        params: { prefix: value, limit: 8 },
+      });
+      showResults(response.data);
+    } catch (error) {
+      console.error("Suggest failed:", error);
+      showResults([]);
+    }
+  };
+
   const performSearch = async (value) => {
     try {
-      const response = await API.get(`/api/products/search?keyword=${value}`);
-      const data = response.data;
-      if (data.length > 0) {
-        setSearchResults(data);
-        setNoResults(false);
-      } else {
-        setSearchResults([]);
-        setNoResults(true);
-      }
+      const response = await API.get("/api/products/search", {
+        params: { keyword: value, limit: 10 },
+      });
+      showResults(
+        response.data.items.map((product) => ({
+          text: product.name,
+          type: "product",
+          productId: product.id,
+        }))
+      );
     } catch (error) {
       console.error("Search failed:", error);
-      setSearchResults([]);
-      setNoResults(true);
+      showResults([]);
+    }
+  };
+
+  const selectResult = (result) => {
+    if (result.productId) {
+      navigate(`/product/${result.productId}`);
+    } else if (result.type === "category") {
+      handleCategoryClick(result.text);
+    } else {
+      // Brands and shared names list their matching products
+      performSearch(result.text);
+      return;
     }
+    setShowSearchResults(false);
+    setInput("");
   };
 
   const handleKeyDown = (e) => {
@@ -87,9 +120,7 @@ const Navbar = ({ onSelectCategory, selectedCategory }) => {
     } else if (e.key === "ArrowUp") {
       setHighlightIndex((prev) => (prev > 0 ? prev - 1 : searchResults.length - 1));
     } else if (e.key === "Enter" && highlightIndex >= 0) {
-      navigate(`/product/${searchResults[highlightIndex].id}`);
-      setShowSearchResults(false);
-      setInput("");
+      selectResult(searchResults[highlightIndex]);
     }
   };
 
@@ -208,12 +239,18 @@ const Navbar = ({ onSelectCategory, selectedCategory }) => {
                   {searchResults.length > 0 ? (
                     searchResults.map((result, index) => (
                       <li
-                        key={result.id}
+                        key={`${result.type}-${result.productId ?? result.text}`}
                         className={`list-group-item ${index === highlightIndex ? "highlighted" : ""}`}
-                        onMouseDown={() => navigate(`/product/${result.id}`)}
+                        onMouseDown={(e) => {
+                          e.preventDefault(); // keep focus so the dropdown stays open
+                          selectResult(result);
+                        }}
                         onMouseEnter={() => setHighlightIndex(index)}
                       >
-                        {result.name}
+                        {result.text}
+                        {(result.type === "brand" || result.type === "category") && (
+                          <small className="text-muted ms-2">{result.type}</small>
+                        )}
                       </li>
                     ))
                   ) : (
@@ -18,13 +18,71 @@ const formatDate = (str) => {
   }
 };
 
+const PAGE_SIZE = 10;
+
+// The image the line was bought with, falling back to the product's current one for older orders
+const itemImageSource = ({ productId, imageUrl }) =>
+  imageUrl || `/api/product/${productId}/image`;
+
 const Orders = () => {
   const { isLoggedIn, user } = useAuth();
   const [orders, setOrders] = useState([]);
   const [imageUrls, setImageUrls] = useState({});
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState(null);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
   const imageUrlsRef = useRef({});
+  const currentUserIdRef = useRef(null);
+
+  const loadImages = async (pageOrders) => {
+    // Keyed by source URL: lines of the same product can show different snapshot images
+    const sources = new Set(
+      pageOrders.flatMap((order) => order.items.map(itemImageSource))
+    );
+    const imageTasks = [...sources]
+      .filter((source) => !(source in imageUrlsRef.current))
+      .map(async (source) => {
+        try {
+          const blob = await API.get(source, {
+            responseType: "blob",
+            params: { size: "thumbnail" },
+          });
+          return { source, imageUrl: URL.createObjectURL(blob.data) };
+        } catch {
+          return { source, imageUrl: "/placeholder-image.png" };
+        }
+      });
+
+    const resolved = await Promise.all(imageTasks);
+    const map = resolved.reduce((acc, { source, imageUrl }) => {
+      acc[source] = imageUrl;
+      return acc;
+    }, { ...imageUrlsRef.current });
+    imageUrlsRef.current = map;
+    setImageUrls(map);
+  };
+
+  // Pages come back newest first; nextCursor is null on the last page
+  const fetchPage = (cursor) =>
+    API.get(`/api/orders/user/${currentUserIdRef.current}`, {
+      params: { limit: PAGE_SIZE, ...(cursor ? { cursor } : {}) },
+    }).then((res) => res.data);
+
+  const loadMore = async () => {
+    if (!nextCursor || loadingMore) return;
+    setLoadingMore(true);
+    try {
+      const page = await fetchPage(nextCursor);
+      setOrders((prev) => [...prev, ...page.items]);
+      setNextCursor(page.nextCursor);
+      await loadImages(page.items);
+    } catch (err) {
+      toast.error(err.response?.data?.message || "Failed to load more orders");
+    } finally {
+      setLoadingMore(false);
+    }
+  };
 
   const userId = useMemo(() => {
     const token = localStorage.getItem("token")?.trim();
@@ -47,31 +105,15 @@ const Orders = () => {
           currentUserId = profileRes.data.id;
         }
 
-        const res = await API.get(`/api/orders/user/${currentUserId}`);
-        const data = Array.isArray(res.data) ? res.data : [];
-        const sorted = data.sort((a, b) => new Date(b.orderDate) - new Date(a.orderDate));
-        setOrders(sorted);
-
-        if (sorted.length === 0) toast.info("No orders found for your account");
-
-        const imageTasks = sorted.flatMap((order) =>
-          order.items.map(async ({ productId }) => {
-            try {
-              const blob = await API.get(`/api/product/${productId}/image`, { responseType: "blob" });
-              return { productId, imageUrl: URL.createObjectURL(blob.data) };
-            } catch {
-              return { productId, imageUrl: "/placeholder-image.png" };
-            }
-          })
-        );
-
-        const resolved = await Promise.all(imageTasks);
-        const map = resolved.reduce((acc, { productId, imageUrl }) => {
-          acc[productId] = imageUrl;
-          return acc;
-        }, {});
-        imageUrlsRef.current = map;
-        setImageUrls(map);
+        currentUserIdRef.current = currentUserId;
+        const page = await fetchPage(null);
+        const data = Array.isArray(page?.items) ? page.items : [];
+        setOrders(data);
+        setNextCursor(page?.nextCursor || null);
+
+        if (data.length === 0) toast.info("No orders found for your account");
+
+        await loadImages(data);
 
       } catch (err) {
         const msg = err.response?.data?.message || err.message || "Failed to load orders";
@@ -130,7 +172,7 @@ const Orders = () => {
                   <li key={`${order.orderId}-${item.productId}`} className="item-line">
                     <Link to={`/product/${item.productId}`} className="item-link">
                       <img
-                        src={imageUrls[item.productId] || "/placeholder-image.png"}
+                        src={imageUrls[itemImageSource(item)] || "/placeholder-image.png"}
                         alt={item.productName}
                         className="order-product-image"
                       />
@@ -149,6 +191,13 @@ const Orders = () => {
           </div>
         ))
       )}
+      {nextCursor && (
+        <div className="text-center my-3">
+          <button className="btn-primary" onClick={loadMore} disabled={loadingMore}>
+            {loadingMore ? "Loading..." : "Load more orders"}
+          </button>
+        </div>
+      )}
     </div>
   );
 };
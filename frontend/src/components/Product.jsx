@@ -24,10 +24,12 @@ const Product = () => {
     const fetchProductData = async () => {
       try {
         setIsLoading(true);
-        const [productRes, imageRes] = await Promise.all([
-          API.get(`/api/product/${id}`),
-          API.get(`/api/product/${id}/image`, { responseType: "blob" }),
-        ]);
+        const productRes = await API.get(`/api/product/${id}`);
+        // Versioned URL from the API lets the browser reuse its cached copy
+        const imageRes = await API.get(
+          productRes.data.imageUrl || `/api/product/${id}/image`,
+          { responseType: "blob" }
+        );
 
         setProduct(productRes.data);
         setImageUrl(URL.createObjectURL(imageRes.data));
@@ -42,6 +44,19 @@ const Product = () => {
     fetchProductData();
   }, [id]);
 
+  // Live stock level pushed by the server while the page is open
+  useEffect(() => {
+    const source = new EventSource(
+      `${import.meta.env.VITE_BASE_URL}/api/products/stock-stream?ids=${id}`,
+      { withCredentials: true }
+    );
+    source.addEventListener("stock", (event) => {
+      const { stockQuantity } = JSON.parse(event.data);
+      setProduct(prev => (prev ? { ...prev, stockQuantity } : prev));
+    });
+    return () => source.close();
+  }, [id]);
+
   const handleDelete = async () => {
     if (!isAdmin) return toast.error("Admin only!");
 
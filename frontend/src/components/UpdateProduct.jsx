@@ -15,6 +15,7 @@ const UpdateProduct = () => {
   const { id } = useParams();
   const [product, setProduct] = useState({});
   const [image, setImage] = useState(null);
+  const [imageChanged, setImageChanged] = useState(false);
   const [updateProduct, setUpdateProduct] = useState({
     id: null,
     name: "",
@@ -73,7 +74,8 @@ const UpdateProduct = () => {
       new Blob([JSON.stringify(updateProduct)], { type: "application/json" })
     );
 
-    if (image) {
+    // Only send the image when a new one was picked; metadata-only edits skip the upload
+    if (image && imageChanged) {
       formData.append("image", image);
     }
 
@@ -98,6 +100,7 @@ const UpdateProduct = () => {
 
   const handleImageChange = (e) => {
     setImage(e.target.files[0]);
+    setImageChanged(true);
   };
 
   const handleCancel = () => {